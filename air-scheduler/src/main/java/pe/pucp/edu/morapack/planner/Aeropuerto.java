@@ -15,6 +15,19 @@ public class Aeropuerto {
     private String latitud;
     private String longitud;
 
+    //Formato de una línea de aeropuerto (se compila una sola vez, no por línea)
+    private static final Pattern LINEA = Pattern.compile(
+            "(\\d+)\\s+" +            // ID
+                    "(\\w+)\\s+" +            // Código
+                    "(.+?)\\s{2,}" +          // Ciudad (cualquier cosa hasta dos o más espacios)
+                    "(.+?)\\s+" +             // País (hasta el siguiente espacio)
+                    "(\\w+)\\s+" +            // Abreviatura (ignored si quieres)
+                    "([+-]?\\d+)\\s+" +       // GMT
+                    "(\\d+)\\s+" +            // Capacidad
+                    "Latitude:\\s+(.+?)\\s+" + // Latitud
+                    "Longitude:\\s+(.+)"       // Longitud
+    );
+
     public Aeropuerto() {
     }
 
@@ -107,18 +120,7 @@ public class Aeropuerto {
     public String leer(Scanner sc){
         if (!sc.hasNextLine()) return null;
         String linea = sc.nextLine();
-        Pattern p = Pattern.compile(
-                "(\\d+)\\s+" +            // ID
-                        "(\\w+)\\s+" +            // Código
-                        "(.+?)\\s{2,}" +          // Ciudad (cualquier cosa hasta dos o más espacios)
-                        "(.+?)\\s+" +             // País (hasta el siguiente espacio)
-                        "(\\w+)\\s+" +            // Abreviatura (ignored si quieres)
-                        "([+-]?\\d+)\\s+" +       // GMT
-                        "(\\d+)\\s+" +            // Capacidad
-                        "Latitude:\\s+(.+?)\\s+" + // Latitud
-                        "Longitude:\\s+(.+)"       // Longitud
-        );
-        Matcher m = p.matcher(linea);
+        Matcher m = LINEA.matcher(linea);
         if (m.matches()) {
             this.id = Integer.parseInt(m.group(1));
             this.codigo = m.group(2);
@@ -11,6 +11,8 @@ public class AlgoritmoMemetico {
     private final Map<Integer, Pedido> pedidosMap;
     private final Map<Integer, List<CandidateRoute>> candidatasPorPedido;
     private final Random random;
+    private PlanStore planStore; //opcional: persiste las asignaciones confirmadas
+    private CandidateIndex indiceCandidatas; //opcional: marca los pedidos confirmados para no replanificarlos
     
     // Parámetros del algoritmo
     private final int tamanoPoblacion = 100;
@@ -31,66 +33,108 @@ public class AlgoritmoMemetico {
         this.random = new Random();
     }
 
+    public void setPlanStore(PlanStore planStore) {
+        this.planStore = planStore;
+    }
+
+    public void setIndiceCandidatas(CandidateIndex indiceCandidatas) {
+        this.indiceCandidatas = indiceCandidatas;
+    }
+
     //Para imprimir bien las horas:
     DateTimeFormatter fmt = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
 
     
+    // Genoma denso: se arma en prepararGenoma() al empezar ejecutar().
+    // Los pedidos van por ordinal (0..n-1) y los arcos por un ordinal local sobre los arcos que usan
+    // las candidatas, así un individuo son dos int[] y copiarlo o cruzarlo es un System.arraycopy.
+    private int[] idsPedido;          // ordinal -> pedidoId
+    private int[] cantidades;         // ordinal -> cantidad del pedido
+    private CandidateRoute[][] rutas; // ordinal -> candidatas
+    private int[][][] arcosRuta;      // [ordinal][ruta] -> arcos locales de la candidata
+    private TEGraph.Arc[] arcosLocales;
+    private int[] residualBase;       // residual global por arco local (el libro no cambia durante la búsqueda)
+
+    private void prepararGenoma() {
+        int n = pedidosMap.size();
+        idsPedido = new int[n];
+        int o = 0;
+        for (int pedidoId : pedidosMap.keySet()) idsPedido[o++] = pedidoId;
+        Arrays.sort(idsPedido);
+
+        cantidades = new int[n];
+        rutas = new CandidateRoute[n][];
+        arcosRuta = new int[n][][];
+        Map<Integer, Integer> local = new HashMap<>(); // índice global del arco -> ordinal local
+        List<TEGraph.Arc> arcos = new ArrayList<>();
+        for (o = 0; o < n; o++) {
+            cantidades[o] = pedidosMap.get(idsPedido[o]).getCantidad();
+            List<CandidateRoute> candidatas = candidatasPorPedido.get(idsPedido[o]);
+            rutas[o] = (candidatas == null) ? new CandidateRoute[0] : candidatas.toArray(new CandidateRoute[0]);
+            arcosRuta[o] = new int[rutas[o].length][];
+            for (int r = 0; r < rutas[o].length; r++) {
+                List<String> ids = rutas[o][r].arcIds;
+                int[] ruta = new int[ids.size()];
+                int m = 0;
+                for (String arcId : ids) {
+                    TEGraph.Arc arco = grafo.arcsById.get(arcId);
+                    if (arco == null) continue;
+                    Integer a = local.get(arco.getIndex());
+                    if (a == null) {
+                        a = arcos.size();
+                        local.put(arco.getIndex(), a);
+                        arcos.add(arco);
+                    }
+                    ruta[m++] = a;
+                }
+                arcosRuta[o][r] = Arrays.copyOf(ruta, m);
+            }
+        }
+        arcosLocales = arcos.toArray(new TEGraph.Arc[0]);
+        residualBase = new int[arcosLocales.length];
+        for (int a = 0; a < arcosLocales.length; a++) residualBase[a] = capacidadGlobal.residual(arcosLocales[a]);
+    }
+
     // Clase interna para representar un individuo (solución)
     private class Individuo {
-        // Mapa de pedidoId a índice de ruta candidata (-1 si no se asigna ninguna ruta)
-        private final Map<Integer, Integer> asignaciones;
-        // Mapa de capacidad local (arcId -> carga adicional en este individuo)
-        private final Map<String, Integer> deltaCapacidad;
+        // Índice de ruta candidata por ordinal de pedido (-1 si no se asigna ninguna ruta)
+        private final int[] genes;
+        // Carga adicional de este individuo por arco local, sobre el residual del CapacityBook global
+        private final int[] carga;
         private double fitness;
         private boolean fitnessCalculado;
         private int pedidosAsignados;
         private int cantidadTotalAsignada;
         
         public Individuo() {
-            this.asignaciones = new HashMap<>();
-            this.deltaCapacidad = new HashMap<>();
+            this.genes = new int[idsPedido.length];
+            Arrays.fill(genes, -1); // sin asignar
+            this.carga = new int[arcosLocales.length];
             this.fitness = Double.NEGATIVE_INFINITY;
             this.fitnessCalculado = false;
             this.pedidosAsignados = 0;
             this.cantidadTotalAsignada = 0;
-            
-            // Inicializar asignaciones a -1 (sin asignar)
-            for (Integer pedidoId : pedidosMap.keySet()) {
-                asignaciones.put(pedidoId, -1);
-            }
         }
         
         public Individuo(Individuo otro) {
-            this.asignaciones = new HashMap<>(otro.asignaciones);
-            this.deltaCapacidad = new HashMap<>(otro.deltaCapacidad);
+            this.genes = otro.genes.clone();
+            this.carga = otro.carga.clone();
             this.fitness = otro.fitness;
             this.fitnessCalculado = otro.fitnessCalculado;
             this.pedidosAsignados = otro.pedidosAsignados;
             this.cantidadTotalAsignada = otro.cantidadTotalAsignada;
         }
         
-        public boolean puedeAsignarRuta(int pedidoId, int idxRuta) {
-            Pedido pedido = pedidosMap.get(pedidoId);
-            if (pedido == null) return false;
-            
-            List<CandidateRoute> candidatas = candidatasPorPedido.get(pedidoId);
-            if (candidatas == null || idxRuta < 0 || idxRuta >= candidatas.size()) {
+        public boolean puedeAsignarRuta(int pedido, int idxRuta) {
+            if (idxRuta < 0 || idxRuta >= rutas[pedido].length) {
                 return false; // No hay rutas candidatas o índice inválido
             }
             
-            CandidateRoute ruta = candidatas.get(idxRuta);
-            int cantidad = pedido.getCantidad();
+            int cantidad = cantidades[pedido];
             
-            // Verificar capacidad para cada arco de la ruta
-            for (String arcId : ruta.arcIds) {
-                TEGraph.Arc arco = grafo.arcsById.get(arcId);
-                if (arco == null) continue;
-                
-                // Capacidad residual global - carga adicional en este individuo
-                int capacidadResidual = capacidadGlobal.residual(arco) - 
-                                      deltaCapacidad.getOrDefault(arcId, 0);
-                
-                if (capacidadResidual < cantidad) {
+            // Capacidad residual global - carga adicional en este individuo, arco por arco
+            for (int a : arcosRuta[pedido][idxRuta]) {
+                if (residualBase[a] - carga[a] < cantidad) {
                     return false; // No hay capacidad suficiente
                 }
             }
@@ -98,59 +142,67 @@ public class AlgoritmoMemetico {
             return true;
         }
         
-        public void asignarRuta(int pedidoId, int idxRuta) {
-            if (!puedeAsignarRuta(pedidoId, idxRuta)) {
+        public void asignarRuta(int pedido, int idxRuta) {
+            if (!puedeAsignarRuta(pedido, idxRuta)) {
                 return; // No se puede asignar la ruta
             }
             
-            Pedido pedido = pedidosMap.get(pedidoId);
-            List<CandidateRoute> candidatas = candidatasPorPedido.get(pedidoId);
-            CandidateRoute ruta = candidatas.get(idxRuta);
-            int cantidad = pedido.getCantidad();
+            int cantidad = cantidades[pedido];
             
-            // Actualizar delta de capacidad
-            for (String arcId : ruta.arcIds) {
-                deltaCapacidad.merge(arcId, cantidad, Integer::sum);
-            }
+            // Actualizar carga
+            for (int a : arcosRuta[pedido][idxRuta]) carga[a] += cantidad;
             
             // Actualizar asignaciones
-            int asignacionAnterior = asignaciones.getOrDefault(pedidoId, -1);
+            int asignacionAnterior = genes[pedido];
             if (asignacionAnterior == -1) {
                 // Nueva asignación
                 pedidosAsignados++;
                 cantidadTotalAsignada += cantidad;
             } else {
                 // Reemplazar asignación anterior
-                CandidateRoute rutaAnterior = candidatasPorPedido.get(pedidoId).get(asignacionAnterior);
-                for (String arcId : rutaAnterior.arcIds) {
-                    deltaCapacidad.merge(arcId, -cantidad, (a, b) -> (a + b == 0) ? null : a + b);
-                }
+                for (int a : arcosRuta[pedido][asignacionAnterior]) carga[a] -= cantidad;
             }
             
-            asignaciones.put(pedidoId, idxRuta);
+            genes[pedido] = idxRuta;
             fitnessCalculado = false;
         }
         
-        public void eliminarAsignacion(int pedidoId) {
-            Integer idxRuta = asignaciones.get(pedidoId);
-            if (idxRuta == null || idxRuta == -1) return;
+        public void eliminarAsignacion(int pedido) {
+            int idxRuta = genes[pedido];
+            if (idxRuta == -1) return;
             
-            Pedido pedido = pedidosMap.get(pedidoId);
-            List<CandidateRoute> candidatas = candidatasPorPedido.get(pedidoId);
-            if (candidatas == null || idxRuta >= candidatas.size()) return;
+            int cantidad = cantidades[pedido];
             
-            CandidateRoute ruta = candidatas.get(idxRuta);
-            int cantidad = pedido.getCantidad();
-            
-            // Actualizar delta de capacidad
-            for (String arcId : ruta.arcIds) {
-                deltaCapacidad.merge(arcId, -cantidad, (a, b) -> (a + b == 0) ? null : a + b);
-            }
+            // Actualizar carga
+            for (int a : arcosRuta[pedido][idxRuta]) carga[a] -= cantidad;
             
             // Actualizar contadores
             pedidosAsignados--;
             cantidadTotalAsignada -= cantidad;
-            asignaciones.put(pedidoId, -1);
+            genes[pedido] = -1;
+            fitnessCalculado = false;
+        }
+
+        // Cruce en un punto: genes [0, corte) de a y [corte, n) de b; después se rearma la carga en orden
+        // de pedido, soltando las asignaciones que ya no entran (igual que asignarlas una por una)
+        public void cruzarDesde(Individuo a, Individuo b, int corte) {
+            System.arraycopy(a.genes, 0, genes, 0, corte);
+            System.arraycopy(b.genes, corte, genes, corte, genes.length - corte);
+            Arrays.fill(carga, 0);
+            pedidosAsignados = 0;
+            cantidadTotalAsignada = 0;
+            for (int pedido = 0; pedido < genes.length; pedido++) {
+                int idxRuta = genes[pedido];
+                if (idxRuta == -1) continue;
+                if (!puedeAsignarRuta(pedido, idxRuta)) {
+                    genes[pedido] = -1;
+                    continue;
+                }
+                int cantidad = cantidades[pedido];
+                for (int arco : arcosRuta[pedido][idxRuta]) carga[arco] += cantidad;
+                pedidosAsignados++;
+                cantidadTotalAsignada += cantidad;
+            }
             fitnessCalculado = false;
         }
         
@@ -178,20 +230,15 @@ public class AlgoritmoMemetico {
             double fitnessTiempo = 0.0;
             double fitnessHops = 0.0;
             
-            for (Map.Entry<Integer, Integer> entry : asignaciones.entrySet()) {
-                int pedidoId = entry.getKey();
-                int indiceRuta = entry.getValue();
+            for (int pedido = 0; pedido < genes.length; pedido++) {
+                int indiceRuta = genes[pedido];
                 
                 if (indiceRuta == -1) continue;
                 
-                List<CandidateRoute> candidatas = candidatasPorPedido.get(pedidoId);
-                if (candidatas == null || indiceRuta >= candidatas.size()) continue;
-                
-                CandidateRoute ruta = candidatas.get(indiceRuta);
+                CandidateRoute ruta = rutas[pedido][indiceRuta];
                 
                 // Penalización por tiempo de llegada (ETA más temprano es mejor)
-                long horasHastaETA = (long)(ruta.arrUTC.toLocalTime().getHour() + 
-                                   ruta.arrUTC.toLocalTime().getMinute() / 60.0);
+                long horasHastaETA = Math.floorMod(ruta.arrMin, MinutoSim.MIN_POR_DIA) / 60;
                 fitnessTiempo += horasHastaETA;
                 
                 // Penalización por número de saltos (menos saltos es mejor)
@@ -212,47 +259,39 @@ public class AlgoritmoMemetico {
         }
         
         public Map<Integer, Integer> getAsignaciones() {
-            return new HashMap<>(asignaciones);
-        }
-        
-        private void copiarDesde(Individuo otro) {
-            this.asignaciones.clear();
-            this.asignaciones.putAll(otro.asignaciones);
-            this.deltaCapacidad.clear();
-            this.deltaCapacidad.putAll(otro.deltaCapacidad);
-            this.fitness = otro.fitness;
-            this.fitnessCalculado = otro.fitnessCalculado;
-            this.pedidosAsignados = otro.pedidosAsignados;
-            this.cantidadTotalAsignada = otro.cantidadTotalAsignada;
+            Map<Integer, Integer> asignaciones = new HashMap<>();
+            for (int pedido = 0; pedido < genes.length; pedido++) asignaciones.put(idsPedido[pedido], genes[pedido]);
+            return asignaciones;
         }
         
         public void aplicarBusquedaLocal() {
             // Implementación de búsqueda local
             // Seleccionar un pedido aleatorio y reasignar su ruta
-            List<Integer> pedidos = new ArrayList<>(asignaciones.keySet());
-            if (pedidos.isEmpty()) return;
+            if (genes.length == 0) return;
             
-            int pedidoId = pedidos.get(random.nextInt(pedidos.size()));
-            int idxRuta = asignaciones.get(pedidoId);
+            int pedido = random.nextInt(genes.length);
+            int idxRuta = genes[pedido];
             if (idxRuta == -1) return;
             
-            List<CandidateRoute> candidatas = candidatasPorPedido.get(pedidoId);
-            if (candidatas == null || candidatas.isEmpty()) return;
+            int nRutas = rutas[pedido].length;
+            if (nRutas < 2) return;
             
             // Seleccionar una ruta aleatoria diferente a la actual
-            int nuevoIdxRuta = random.nextInt(candidatas.size());
+            int nuevoIdxRuta = random.nextInt(nRutas);
             while (nuevoIdxRuta == idxRuta) {
-                nuevoIdxRuta = random.nextInt(candidatas.size());
+                nuevoIdxRuta = random.nextInt(nRutas);
             }
             
             // Reasignar la ruta
-            eliminarAsignacion(pedidoId);
-            asignarRuta(pedidoId, nuevoIdxRuta);
+            eliminarAsignacion(pedido);
+            asignarRuta(pedido, nuevoIdxRuta);
         }
     }
     
     // Método principal para ejecutar el algoritmo
     public void ejecutar() {
+        prepararGenoma();
+        
         // Inicializar población
         List<Individuo> poblacion = inicializarPoblacion();
         evaluarPoblacion(poblacion);
@@ -321,13 +360,13 @@ public class AlgoritmoMemetico {
         
         // Mostrar asignaciones detalladas
         System.out.println("\n=== DETALLE DE ASIGNACIONES ===");
-        for (Map.Entry<Integer, Integer> entry : mejorGlobal.asignaciones.entrySet()) {
-            int pedidoId = entry.getKey();
-            int idxRuta = entry.getValue();
+        for (int o = 0; o < idsPedido.length; o++) {
+            int pedidoId = idsPedido[o];
+            int idxRuta = mejorGlobal.genes[o];
             
             if (idxRuta != -1) {
                 Pedido pedido = pedidosMap.get(pedidoId);
-                CandidateRoute ruta = candidatasPorPedido.get(pedidoId).get(idxRuta);
+                CandidateRoute ruta = rutas[o][idxRuta];
                 
                 System.out.printf("Pedido %d (Cantidad: %d) (Fecha de creacion: %s) -> ",
                     pedidoId, pedido.getCantidad(), pedido.getFecha().format(fmt));
@@ -384,7 +423,7 @@ public class AlgoritmoMemetico {
                         if (lastArco != null) {
                             String codigo = lastArco.getTo().getAeropuerto().getCodigo();
                             int capacidad = lastArco.getCapacity();
-                            int ocupacion = capacidadGlobal.used(lastArco.getArcId());
+                            int ocupacion = capacidadGlobal.used(lastArco);
                             LocalDateTime dep = lastArco.getFrom().getTimestampUTC();
                             LocalDateTime arr = lastArco.getTo().getTimestampUTC();
 
@@ -416,11 +455,11 @@ public class AlgoritmoMemetico {
             throw new IllegalStateException("No hay pedidos o rutas candidatas para inicializar la población");
         }
         
-        // Crear una lista de pedidos con al menos una ruta candidata
+        // Crear una lista de pedidos (ordinales) con al menos una ruta candidata
         List<Integer> pedidosValidos = new ArrayList<>();
-        for (Map.Entry<Integer, List<CandidateRoute>> entry : candidatasPorPedido.entrySet()) {
-            if (entry.getValue() != null && !entry.getValue().isEmpty()) {
-                pedidosValidos.add(entry.getKey());
+        for (int o = 0; o < rutas.length; o++) {
+            if (rutas[o].length > 0) {
+                pedidosValidos.add(o);
             }
         }
         
@@ -433,13 +472,12 @@ public class AlgoritmoMemetico {
             Individuo individuo = new Individuo();
             
             // Asignar rutas aleatorias a algunos pedidos
-            for (int pedidoId : pedidosValidos) {
-                List<CandidateRoute> candidatas = candidatasPorPedido.get(pedidoId);
-                if (candidatas != null && !candidatas.isEmpty() && random.nextDouble() < 0.7) {
+            for (int pedido : pedidosValidos) {
+                if (random.nextDouble() < 0.7) {
                     // 70% de probabilidad de asignar una ruta a este pedido
-                    int idxRuta = random.nextInt(candidatas.size());
-                    if (individuo.puedeAsignarRuta(pedidoId, idxRuta)) {
-                        individuo.asignarRuta(pedidoId, idxRuta);
+                    int idxRuta = random.nextInt(rutas[pedido].length);
+                    if (individuo.puedeAsignarRuta(pedido, idxRuta)) {
+                        individuo.asignarRuta(pedido, idxRuta);
                     }
                 }
             }
@@ -447,13 +485,10 @@ public class AlgoritmoMemetico {
             // Asegurarse de que el individuo tenga al menos una ruta asignada
             if (individuo.getPedidosAsignados() == 0 && !pedidosValidos.isEmpty()) {
                 // Si no se asignó ninguna ruta, forzar la asignación de al menos una
-                int pedidoId = pedidosValidos.get(random.nextInt(pedidosValidos.size()));
-                List<CandidateRoute> candidatas = candidatasPorPedido.get(pedidoId);
-                if (candidatas != null && !candidatas.isEmpty()) {
-                    int idxRuta = random.nextInt(candidatas.size());
-                    if (individuo.puedeAsignarRuta(pedidoId, idxRuta)) {
-                        individuo.asignarRuta(pedidoId, idxRuta);
-                    }
+                int pedido = pedidosValidos.get(random.nextInt(pedidosValidos.size()));
+                int idxRuta = random.nextInt(rutas[pedido].length);
+                if (individuo.puedeAsignarRuta(pedido, idxRuta)) {
+                    individuo.asignarRuta(pedido, idxRuta);
                 }
             }
             
@@ -504,23 +539,14 @@ public class AlgoritmoMemetico {
         // Cruzar
         List<Individuo> hijos = new ArrayList<>();
         
-        // Seleccionar un punto de corte aleatorio
-        int puntoCorte = random.nextInt(pedidosMap.size());
+        // Seleccionar un punto de corte aleatorio (sobre los ordinales de pedido)
+        int puntoCorte = random.nextInt(idsPedido.length);
         
-        // Crear hijos
+        // Crear hijos con las rutas de los padres a cada lado del corte
         Individuo hijo1 = new Individuo();
         Individuo hijo2 = new Individuo();
-        
-        // Asignar rutas de los padres a los hijos
-        for (int pedidoId : pedidosMap.keySet()) {
-            if (pedidoId < puntoCorte) {
-                hijo1.asignarRuta(pedidoId, padre1.asignaciones.get(pedidoId));
-                hijo2.asignarRuta(pedidoId, padre2.asignaciones.get(pedidoId));
-            } else {
-                hijo1.asignarRuta(pedidoId, padre2.asignaciones.get(pedidoId));
-                hijo2.asignarRuta(pedidoId, padre1.asignaciones.get(pedidoId));
-            }
-        }
+        hijo1.cruzarDesde(padre1, padre2, puntoCorte);
+        hijo2.cruzarDesde(padre2, padre1, puntoCorte);
         
         hijos.add(hijo1);
         hijos.add(hijo2);
@@ -531,48 +557,41 @@ public class AlgoritmoMemetico {
     private void mutar(Individuo individuo) {
         // Mutar
         // Seleccionar un pedido aleatorio y reasignar su ruta
-        List<Integer> pedidos = new ArrayList<>(individuo.asignaciones.keySet());
-        if (pedidos.isEmpty()) return;
+        if (idsPedido.length == 0) return;
         
-        int pedidoId = pedidos.get(random.nextInt(pedidos.size()));
-        int idxRuta = individuo.asignaciones.get(pedidoId);
+        int pedido = random.nextInt(idsPedido.length);
+        int idxRuta = individuo.genes[pedido];
         if (idxRuta == -1) return;
         
-        List<CandidateRoute> candidatas = candidatasPorPedido.get(pedidoId);
-        if (candidatas == null || candidatas.isEmpty()) return;
+        int nRutas = rutas[pedido].length;
+        if (nRutas < 2) return;
         
         // Seleccionar una ruta aleatoria diferente a la actual
-        int nuevoIdxRuta = random.nextInt(candidatas.size());
+        int nuevoIdxRuta = random.nextInt(nRutas);
         while (nuevoIdxRuta == idxRuta) {
-            nuevoIdxRuta = random.nextInt(candidatas.size());
+            nuevoIdxRuta = random.nextInt(nRutas);
         }
         
         // Reasignar la ruta
-        individuo.eliminarAsignacion(pedidoId);
-        individuo.asignarRuta(pedidoId, nuevoIdxRuta);
+        individuo.eliminarAsignacion(pedido);
+        individuo.asignarRuta(pedido, nuevoIdxRuta);
     }
     
     private void aplicarMejorSolucion(Individuo mejor) {
         // Aplicar la mejor solución al CapacityBook global
-        for (Map.Entry<Integer, Integer> entry : mejor.asignaciones.entrySet()) {
-            int pedidoId = entry.getKey();
-            int idxRuta = entry.getValue();
+        for (int o = 0; o < idsPedido.length; o++) {
+            int pedidoId = idsPedido[o];
+            int idxRuta = mejor.genes[o];
             
             if (idxRuta == -1) continue;
             
-            List<CandidateRoute> candidatas = candidatasPorPedido.get(pedidoId);
-            if (candidatas == null || idxRuta >= candidatas.size()) continue;
-            
-            CandidateRoute ruta = candidatas.get(idxRuta);
-            int cantidad = pedidosMap.get(pedidoId).getCantidad();
+            CandidateRoute ruta = rutas[o][idxRuta];
+            int cantidad = cantidades[o];
             
-            // Actualizar capacidad global usando el método reserve
-            for (String arcId : ruta.arcIds) {
-                TEGraph.Arc arco = grafo.arcsById.get(arcId);
-                if (arco != null) {
-                    capacidadGlobal.reserve(arco, cantidad);
-                }
-            }
+            // Actualizar capacidad global: las esperas seguidas se reservan como una sola estadía
+            capacidadGlobal.reservePath(ruta.arcIds, grafo, cantidad, pedidoId);
+            if (planStore != null) planStore.registrarAsignacion(pedidoId, cantidad, ruta);
+            if (indiceCandidatas != null) indiceCandidatas.confirmar(pedidoId);
         }
     }
     
@@ -586,18 +605,17 @@ public class AlgoritmoMemetico {
         int saltosPromedio = 0;
         
         // Contar pedidos asignados y recolectar estadísticas
-        for (Map.Entry<Integer, Integer> entry : mejor.asignaciones.entrySet()) {
-            int pedidoId = entry.getKey();
-            int idxRuta = entry.getValue();
+        for (int o = 0; o < idsPedido.length; o++) {
+            int pedidoId = idsPedido[o];
+            int idxRuta = mejor.genes[o];
             
             if (idxRuta != -1) {
                 pedidosAsignados++;
                 Pedido pedido = pedidosMap.get(pedidoId);
                 cantidadTotalAsignada += pedido.getCantidad();
                 
-                CandidateRoute ruta = candidatasPorPedido.get(pedidoId).get(idxRuta);
-                tiempoPromedio += ruta.arrUTC.toLocalTime().getHour() + 
-                                ruta.arrUTC.toLocalTime().getMinute() / 60.0;
+                CandidateRoute ruta = rutas[o][idxRuta];
+                tiempoPromedio += Math.floorMod(ruta.arrMin, MinutoSim.MIN_POR_DIA) / 60.0;
                 saltosPromedio += ruta.hops;
                 
                 // Mostrar ruta detallada para cada pedido
@@ -677,13 +695,13 @@ public class AlgoritmoMemetico {
         }
         
         // Mostrar capacidad utilizada
-        if (!mejor.deltaCapacidad.isEmpty()) {
+        if (mejor.getPedidosAsignados() > 0) {
             System.out.println("\nCapacidad utilizada por arco:");
-            for (Map.Entry<String, Integer> entry : mejor.deltaCapacidad.entrySet()) {
-                TEGraph.Arc arco = grafo.arcsById.get(entry.getKey());
-                if (arco != null) {
+            for (int a = 0; a < arcosLocales.length; a++) {
+                int capacidadUsada = mejor.carga[a];
+                if (capacidadUsada > 0) {
+                    TEGraph.Arc arco = arcosLocales[a];
                     int capacidadTotal = arco.getCapacity();
-                    int capacidadUsada = entry.getValue();
                     double porcentaje = (capacidadUsada * 100.0) / capacidadTotal;
                     System.out.printf("Arco %s -> %s: %d/%d (%.1f%%)%n", 
                         arco.getFrom().getAeropuerto().getCodigo(),
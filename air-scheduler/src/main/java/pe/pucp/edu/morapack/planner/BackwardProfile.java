@@ -0,0 +1,74 @@
+package pe.pucp.edu.morapack.planner;
+
+import java.util.Arrays;
+
+//Búsqueda hacia atrás desde un destino (perfil): para cada aeropuerto, cada salida y cada cantidad de
+//vuelos que quedan, la llegada más temprana al destino tomando esa salida o una posterior.
+//Así llegadaMinima(a, t, r) responde con una búsqueda binaria a qué hora se llega, como pronto, estando
+//en a listo para salir en t. No mira capacidad (es una cota optimista y consistente: tomar un vuelo nunca
+//la baja) y no depende del deadline, así que se arma una vez por destino y la comparten todos los pedidos
+//a ese destino; solo se rehace cuando cambia el grafo.
+//RoutePlanner la usa para descartar un pedido sin buscar, para cortar las salidas desde las que ya no se
+//llega a tiempo y para guiar la extracción de las rutas (ver RoutePlanner.buscar).
+final class BackwardProfile {
+    static final int INALCANZABLE = Integer.MAX_VALUE;
+
+    private final DepartureIndex idx; //foto del grafo sobre la que se armó
+    private final int destino;
+    private final int[][][] llegada; //[vuelos restantes][aeropuerto][salida]; una posición más = INALCANZABLE
+
+    BackwardProfile(DepartureIndex idx, int destino, int maxVuelos, int minLayover) {
+        this.idx = idx;
+        this.destino = destino;
+        int A = idx.airportCount();
+        llegada = new int[maxVuelos + 1][A][];
+        for (int a = 0; a < A; a++) {
+            llegada[0][a] = new int[idx.departureCount(a) + 1];
+            Arrays.fill(llegada[0][a], INALCANZABLE); //sin vuelos no se sale a ningún lado
+        }
+
+        for (int r = 1; r <= maxVuelos; r++) {
+            for (int a = 0; a < A; a++) {
+                int m = idx.departureCount(a);
+                int[] l = new int[m + 1];
+                l[m] = INALCANZABLE;
+                for (int j = m - 1; j >= 0; j--) {
+                    int mejor = INALCANZABLE;
+                    int arrEvent = idx.arrEvent(a, j);
+                    if (a != destino && arrEvent >= 0) {
+                        int b = idx.arrAirport(a, j);
+                        int arr = idx.eventMinute(b, arrEvent);
+                        mejor = (b == destino) ? arr : llegadaMinima(b, arr + minLayover, r - 1);
+                    }
+                    l[j] = Math.min(mejor, l[j + 1]);
+                }
+                llegada[r][a] = l;
+            }
+        }
+    }
+
+    DepartureIndex getIndice() {
+        return idx;
+    }
+
+    int getDestino() {
+        return destino;
+    }
+
+    //Llegada más temprana al destino desde el aeropuerto (distinto del destino) saliendo en t o después,
+    //con a lo sumo vuelos vuelos; INALCANZABLE si no hay
+    int llegadaMinima(int airport, int t, int vuelos) {
+        return llegadaMinimaDesde(airport, idx.firstDeparture(airport, t), vuelos);
+    }
+
+    //Igual, pero tomando la salida j del aeropuerto o una posterior
+    int llegadaMinimaDesde(int airport, int j, int vuelos) {
+        if (vuelos <= 0) return INALCANZABLE;
+        return llegada[Math.min(vuelos, llegada.length - 1)][airport][j];
+    }
+
+    //¿Estando en el aeropuerto listo para salir en el minuto t se llega antes del deadline?
+    boolean alcanza(int airport, int t, int vuelos, int deadline) {
+        return llegadaMinima(airport, t, vuelos) <= deadline;
+    }
+}
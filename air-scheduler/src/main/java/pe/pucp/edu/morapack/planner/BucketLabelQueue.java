@@ -0,0 +1,83 @@
+package pe.pucp.edu.morapack.planner;
+
+import java.util.Arrays;
+
+//Cola por casilleros (bucket queue) para búsquedas monótonas: la clave de las etiquetas que se encolan
+//nunca es menor que la de la última que salió, y todas caen entre el minuto de inicio y la llegada máxima
+//(a lo sumo unos pocos días de minutos). Hay un casillero por (minuto, hops); dentro del casillero
+//quedan ordenadas por residual ↓ (en empate, por orden de llegada). Sacar avanza un cursor que nunca
+//retrocede, así que push y poll son O(1) amortizado salvo los empates de minuto y escalas, que son pocos.
+//Los arreglos se agrandan solo si hace falta y se reutilizan entre búsquedas.
+final class BucketLabelQueue implements LabelQueue {
+    private final LabelPool pool;
+
+    private int desde, hasta, casillerosPorMinuto;
+    private int[] cabeza = new int[0];   //primera etiqueta de cada casillero
+    private int[] sig = new int[256];    //siguiente etiqueta del mismo casillero
+    private int cursor;                  //ningún casillero antes del cursor tiene etiquetas
+    private int ultimo = -1;             //mayor casillero usado desde el último limpiar
+    private int size;
+
+    BucketLabelQueue(LabelPool pool) {
+        this.pool = pool;
+    }
+
+    //Rango de claves de la búsqueda y máximo de escalas; las etiquetas fuera de [desde, hasta] no se
+    //encolan (la búsqueda igual las descartaría por llegar tarde)
+    void preparar(int desde, int hasta, int maxHops) {
+        limpiar();
+        this.desde = desde;
+        this.hasta = hasta;
+        this.casillerosPorMinuto = maxHops + 1;
+        long n = (long) Math.max(0, hasta - desde + 1) * casillerosPorMinuto;
+        if (n > cabeza.length) {
+            cabeza = new int[(int) Math.max(n, cabeza.length * 2L)];
+            Arrays.fill(cabeza, LabelPool.NINGUNO);
+        }
+    }
+
+    @Override
+    public void limpiar() {
+        for (int c = cursor; c <= ultimo; c++) cabeza[c] = LabelPool.NINGUNO;
+        cursor = 0;
+        ultimo = -1;
+        size = 0;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void push(int l) {
+        int t = pool.clave[l];
+        if (t < desde || t > hasta) return;
+        int c = (t - desde) * casillerosPorMinuto + Math.min(pool.hops[l], casillerosPorMinuto - 1);
+        if (c < cursor) c = cursor; //no debería pasar en una búsqueda monótona
+        if (l >= sig.length) sig = Arrays.copyOf(sig, Math.max(l + 1, sig.length * 2));
+
+        int r = pool.minResidual[l];
+        int prev = LabelPool.NINGUNO;
+        int x = cabeza[c];
+        while (x != LabelPool.NINGUNO && pool.minResidual[x] >= r) {
+            prev = x;
+            x = sig[x];
+        }
+        sig[l] = x;
+        if (prev == LabelPool.NINGUNO) cabeza[c] = l;
+        else sig[prev] = l;
+
+        if (c > ultimo) ultimo = c;
+        size++;
+    }
+
+    @Override
+    public int poll() {
+        while (cabeza[cursor] == LabelPool.NINGUNO) cursor++;
+        int l = cabeza[cursor];
+        cabeza[cursor] = sig[l];
+        size--;
+        return l;
+    }
+}
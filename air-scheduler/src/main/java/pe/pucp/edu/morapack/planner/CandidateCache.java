@@ -0,0 +1,199 @@
+package pe.pucp.edu.morapack.planner;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Caché LRU de candidatas por (origen, destino, evento de inicio, ventana de llegada máxima, residual
+//mínimo por arco, k).
+//Pedidos al mismo destino listos entre dos eventos del origen arrancan del mismo nodo, así que
+//comparten la búsqueda; RoutePlanner busca con el fin de la ventana como llegada máxima y filtra por
+//la de cada pedido (ver RoutePlanner.generarCandidatas).
+//Invalidación por capacidad: cada entrada recuerda, por arco, el mayor minResidual de sus candidatas
+//que lo usan; en cuanto una reserva deja el residual de ese arco por debajo (alguna candidata ya no
+//tiene el minResidual guardado), la entrada se descarta. Las reservas hechas mientras se buscaba no
+//llegan a la entrada (todavía no estaba indexada), así que guardar vuelve a mirar los residuales.
+//Las liberaciones no invalidan (las candidatas guardadas siguen siendo factibles).
+//Si el grafo cambia de versión se vacía entera.
+public class CandidateCache implements CapacityBook.Listener {
+    private final int capacidad;
+    private final LinkedHashMap<Clave, Entrada> entradas;
+    private final Map<Integer, Set<Entrada>> porArco = new HashMap<>(); //índice del arco -> entradas que lo usan
+    private CapacityBook capBook;
+    private int version = -1;
+
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong desalojos = new AtomicLong();
+    private final AtomicLong invalidaciones = new AtomicLong();
+
+    static final class Clave {
+        final int origen, destino, inicio, ventana, minimo, k;
+
+        Clave(int origen, int destino, int inicio, int ventana, int minimo, int k) {
+            this.origen = origen;
+            this.destino = destino;
+            this.inicio = inicio;
+            this.ventana = ventana;
+            this.minimo = minimo;
+            this.k = k;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Clave)) return false;
+            Clave c = (Clave) o;
+            return origen == c.origen && destino == c.destino && inicio == c.inicio && ventana == c.ventana && minimo == c.minimo && k == c.k;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((((origen * 31 + destino) * 31 + inicio) * 31 + ventana) * 31 + minimo) * 31 + k;
+        }
+    }
+
+    private static final class Entrada {
+        final Clave clave;
+        final List<CandidateRoute> rutas;
+        final int[] arcos;  //índices de los arcos que usan las candidatas
+        final int[] umbral; //mayor minResidual de las candidatas que usan cada arco
+
+        Entrada(Clave clave, List<CandidateRoute> rutas, int[] arcos, int[] umbral) {
+            this.clave = clave;
+            this.rutas = rutas;
+            this.arcos = arcos;
+            this.umbral = umbral;
+        }
+    }
+
+    public CandidateCache(int capacidad) {
+        this.capacidad = Math.max(1, capacidad);
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Clave, Entrada> mayor) {
+                if (size() <= CandidateCache.this.capacidad) return false;
+                desindexar(mayor.getValue());
+                desalojos.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    //Escucha las reservas del libro para invalidar (una sola vez)
+    public synchronized void conectar(CapacityBook capBook) {
+        if (this.capBook == capBook) return;
+        if (this.capBook != null) this.capBook.removeListener(this);
+        this.capBook = capBook;
+        limpiar();
+        if (capBook != null) capBook.addListener(this);
+    }
+
+    //Candidatas guardadas para la clave (las de la búsqueda con el fin de la ventana), o null
+    synchronized List<CandidateRoute> obtener(Clave clave, int versionGrafo) {
+        if (versionGrafo != version) {
+            limpiar();
+            version = versionGrafo;
+        }
+        Entrada e = entradas.get(clave);
+        if (e == null) {
+            fallos.incrementAndGet();
+            return null;
+        }
+        aciertos.incrementAndGet();
+        return e.rutas;
+    }
+
+    synchronized void guardar(Clave clave, List<CandidateRoute> rutas, TEGraph g, int versionGrafo) {
+        if (versionGrafo != version) return; //el grafo cambió mientras se buscaba
+        Map<Integer, Integer> umbrales = new HashMap<>();
+        for (CandidateRoute c : rutas) {
+            for (String id : c.arcIds) {
+                TEGraph.Arc arc = g.arcsById.get(id);
+                if (arc != null) umbrales.merge(arc.getIndex(), c.minResidual, Math::max);
+            }
+        }
+        //Si algo se reservó durante la búsqueda sobre estos arcos, las candidatas ya no están al día
+        if (capBook != null) {
+            for (Map.Entry<Integer, Integer> u : umbrales.entrySet()) {
+                if (capBook.residual(g.arcByIndex(u.getKey())) < u.getValue()) {
+                    invalidaciones.incrementAndGet();
+                    return;
+                }
+            }
+        }
+        int[] arcos = new int[umbrales.size()];
+        int[] umbral = new int[umbrales.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Integer> u : umbrales.entrySet()) {
+            arcos[i] = u.getKey();
+            umbral[i++] = u.getValue();
+        }
+        Entrada e = new Entrada(clave, List.copyOf(rutas), arcos, umbral);
+        Entrada vieja = entradas.put(clave, e);
+        if (vieja != null) desindexar(vieja);
+        for (int a : arcos) porArco.computeIfAbsent(a, x -> new HashSet<>()).add(e);
+    }
+
+    @Override
+    public void reservado(TEGraph.Arc arc, int q, int pedidoId) {
+        synchronized (this) {
+            Set<Entrada> usan = porArco.get(arc.getIndex());
+            if (usan == null || capBook == null) return;
+            int residual = capBook.residual(arc);
+            for (Entrada e : new ArrayList<>(usan)) {
+                for (int i = 0; i < e.arcos.length; i++) {
+                    if (e.arcos[i] == arc.getIndex() && residual < e.umbral[i]) {
+                        entradas.remove(e.clave);
+                        desindexar(e);
+                        invalidaciones.incrementAndGet();
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void liberado(TEGraph.Arc arc, int q, int pedidoId) {
+        //Más residual no invalida ninguna candidata guardada
+    }
+
+    private void desindexar(Entrada e) {
+        for (int a : e.arcos) {
+            Set<Entrada> usan = porArco.get(a);
+            if (usan == null) continue;
+            usan.remove(e);
+            if (usan.isEmpty()) porArco.remove(a);
+        }
+    }
+
+    public synchronized void limpiar() {
+        entradas.clear();
+        porArco.clear();
+    }
+
+    public synchronized int size() {
+        return entradas.size();
+    }
+
+    public long getAciertos() {
+        return aciertos.get();
+    }
+
+    public long getFallos() {
+        return fallos.get();
+    }
+
+    public long getDesalojos() {
+        return desalojos.get();
+    }
+
+    public long getInvalidaciones() {
+        return invalidaciones.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CandidateCache{entradas=%d/%d, aciertos=%d, fallos=%d, desalojos=%d, invalidaciones=%d}",
+                size(), capacidad, getAciertos(), getFallos(), getDesalojos(), getInvalidaciones());
+    }
+}
@@ -0,0 +1,175 @@
+package pe.pucp.edu.morapack.planner;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Índice inverso arco -> candidatas que lo usan, sobre el mapa de candidatas por pedido.
+//Escucha las reservas y liberaciones del CapacityBook y anota los arcos que cambiaron; reparar(...)
+//recalcula el minResidual de las candidatas que pasan por esos arcos (reemplazándolas en el mapa: las
+//CandidateRoute no cambian, pueden estar también en la caché del planificador) y vuelve a buscar
+//solo los pedidos que se quedaron con alguna candidata que ya no alcanza para su cantidad. Los pedidos
+//replanificados en una misma pasada se buscan sobre un CapacityOverlay del capBook donde cada uno aparta
+//su mejor candidata nueva, para que los siguientes no cuenten con esa capacidad (el minResidual de las
+//candidatas nuevas ya descuenta lo apartado por los anteriores).
+//Así el costo de replanificar después de confirmar un plan depende del cambio y no del total de pedidos.
+//El índice va por ordinal de arco y advanceTo reutiliza los ordinales: si el grafo cambió de versión se
+//rearma y se revisan todas las candidatas.
+public class CandidateIndex implements CapacityBook.Listener {
+    private final TEGraph g;
+    private final CapacityBook capBook;
+    private final Map<Integer, List<CandidateRoute>> candidatasPorPedido;
+    private final Map<Integer, List<CandidateRoute>> porArco = new HashMap<>(); //índice del arco -> candidatas
+    private final Map<CandidateRoute, Integer> pedidoDe = new IdentityHashMap<>();
+    private final Set<Integer> confirmados = new HashSet<>(); //ya no se replanifican
+    private final Set<Integer> arcosSucios = ConcurrentHashMap.newKeySet();
+    private int version; //del grafo con el que se armó porArco
+
+    //Resumen de una reparación
+    public static final class Reparacion {
+        public final int arcos;           //arcos que cambiaron desde la reparación anterior
+        public final int revisadas;       //candidatas con minResidual recalculado
+        public final int replanificados;  //pedidos que se volvieron a buscar
+
+        Reparacion(int arcos, int revisadas, int replanificados) {
+            this.arcos = arcos;
+            this.revisadas = revisadas;
+            this.replanificados = replanificados;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("arcos cambiados=%d, candidatas revisadas=%d, pedidos replanificados=%d",
+                    arcos, revisadas, replanificados);
+        }
+    }
+
+    private CandidateIndex(TEGraph g, CapacityBook capBook, Map<Integer, List<CandidateRoute>> candidatasPorPedido) {
+        this.g = g;
+        this.capBook = capBook;
+        this.candidatasPorPedido = candidatasPorPedido;
+        this.version = g.getVersion();
+        for (Map.Entry<Integer, List<CandidateRoute>> e : candidatasPorPedido.entrySet()) indexar(e.getKey(), e.getValue());
+    }
+
+    //Indexa las candidatas y recién entonces se conecta al capBook (el listener no ve un índice a medio armar)
+    public static CandidateIndex abrir(TEGraph g, CapacityBook capBook, Map<Integer, List<CandidateRoute>> candidatasPorPedido) {
+        CandidateIndex indice = new CandidateIndex(g, capBook, candidatasPorPedido);
+        capBook.addListener(indice);
+        return indice;
+    }
+
+    @Override
+    public void reservado(TEGraph.Arc arc, int q, int pedidoId) {
+        arcosSucios.add(arc.getIndex());
+    }
+
+    @Override
+    public void liberado(TEGraph.Arc arc, int q, int pedidoId) {
+        arcosSucios.add(arc.getIndex());
+    }
+
+    //El pedido ya tiene su ruta reservada: sus candidatas se siguen actualizando pero no se replanifica
+    public synchronized void confirmar(int pedidoId) {
+        confirmados.add(pedidoId);
+    }
+
+    //Candidatas que hoy pasan por el arco (para diagnóstico)
+    public synchronized List<CandidateRoute> candidatasDe(TEGraph.Arc arc) {
+        reindexarSiAvanzo();
+        return new ArrayList<>(porArco.getOrDefault(arc.getIndex(), Collections.emptyList()));
+    }
+
+    //Recalcula el minResidual de las candidatas afectadas por los arcos que cambiaron y vuelve a buscar
+    //los pedidos no confirmados con alguna candidata que ya no alcanza para su cantidad.
+    //planner puede ser null: entonces solo se actualizan los minResidual. Las reservas tentativas quedan en
+    //un overlay que se descarta al terminar: el capBook no cambia.
+    public synchronized Reparacion reparar(RoutePlanner planner, Map<Integer, Pedido> pedidos,
+                                           Collection<String> origenes, int k) {
+        boolean todas = reindexarSiAvanzo();
+        List<Integer> arcos = new ArrayList<>(arcosSucios);
+        arcosSucios.removeAll(arcos);
+
+        Set<CandidateRoute> afectadas = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (todas) afectadas.addAll(pedidoDe.keySet());
+        for (int a : arcos) {
+            List<CandidateRoute> usan = porArco.get(a);
+            if (usan != null) afectadas.addAll(usan);
+        }
+
+        Set<Integer> replanificar = new TreeSet<>();
+        for (CandidateRoute c : afectadas) {
+            int pedidoId = pedidoDe.get(c);
+            CandidateRoute actual = c.conMinResidual(capBook.residualPath(c.arcIds, g));
+            if (actual != c) reemplazar(pedidoId, c, actual);
+            Pedido p = pedidos.get(pedidoId);
+            if (p != null && !confirmados.contains(pedidoId) && actual.minResidual < p.getCantidad()) replanificar.add(pedidoId);
+        }
+
+        if (planner != null && !replanificar.isEmpty()) {
+            CapacityOverlay tentativas = capBook.overlay();
+            RoutePlanner sobreTentativas = planner.sobreLibro(tentativas);
+            for (int pedidoId : replanificar) {
+                Pedido p = pedidos.get(pedidoId);
+                List<CandidateRoute> nuevas = sobreTentativas.generarCandidatasMultiOrigen(p, origenes, k);
+                List<CandidateRoute> viejas = candidatasPorPedido.put(pedidoId, nuevas == null ? List.of() : nuevas);
+                desindexar(viejas);
+                indexar(pedidoId, candidatasPorPedido.get(pedidoId));
+                if (nuevas != null && !nuevas.isEmpty()) tentativas.reservePath(nuevas.get(0).arcIds, g, p.getCantidad());
+            }
+        }
+        return new Reparacion(arcos.size(), afectadas.size(), planner == null ? 0 : replanificar.size());
+    }
+
+    //Cambia la candidata vieja por la nueva en la lista del pedido (una copia: la lista puede venir de la
+    //caché o ser inmutable) y en el índice
+    private void reemplazar(int pedidoId, CandidateRoute vieja, CandidateRoute nueva) {
+        List<CandidateRoute> lista = new ArrayList<>(candidatasPorPedido.get(pedidoId));
+        for (int i = 0; i < lista.size(); i++) {
+            if (lista.get(i) == vieja) lista.set(i, nueva);
+        }
+        candidatasPorPedido.put(pedidoId, lista);
+        desindexar(List.of(vieja));
+        indexar(pedidoId, List.of(nueva));
+    }
+
+    //Si el grafo avanzó, rearma porArco con los ordinales actuales; true si lo hizo
+    private boolean reindexarSiAvanzo() {
+        if (g.getVersion() == version) return false;
+        version = g.getVersion();
+        porArco.clear();
+        pedidoDe.clear();
+        arcosSucios.clear(); //eran ordinales del grafo anterior; se revisa todo igual
+        for (Map.Entry<Integer, List<CandidateRoute>> e : candidatasPorPedido.entrySet()) indexar(e.getKey(), e.getValue());
+        return true;
+    }
+
+    private void indexar(int pedidoId, List<CandidateRoute> candidatas) {
+        if (candidatas == null) return;
+        for (CandidateRoute c : candidatas) {
+            pedidoDe.put(c, pedidoId);
+            for (String id : c.arcIds) {
+                TEGraph.Arc arc = g.arcsById.get(id);
+                if (arc != null) porArco.computeIfAbsent(arc.getIndex(), x -> new ArrayList<>()).add(c);
+            }
+        }
+    }
+
+    private void desindexar(List<CandidateRoute> candidatas) {
+        if (candidatas == null) return;
+        for (CandidateRoute c : candidatas) {
+            pedidoDe.remove(c);
+            for (String id : c.arcIds) {
+                TEGraph.Arc arc = g.arcsById.get(id);
+                if (arc == null) continue;
+                List<CandidateRoute> usan = porArco.get(arc.getIndex());
+                if (usan == null) continue;
+                usan.removeIf(x -> x == c);
+                if (usan.isEmpty()) porArco.remove(arc.getIndex());
+            }
+        }
+    }
+
+    public void close() {
+        capBook.removeListener(this);
+    }
+}
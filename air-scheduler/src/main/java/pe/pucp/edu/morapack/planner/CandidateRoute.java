@@ -8,9 +8,11 @@ public class CandidateRoute {
     public final List<String> arcIds;
     public final LocalDateTime depUTC;
     public final LocalDateTime arrUTC;
+    public final int depMin; //depUTC en minutos desde SIM_DATE (para comparar sin LocalDateTime)
+    public final int arrMin; //arrUTC en minutos desde SIM_DATE
     public final double cost;
     public final int hops;
-    public final int minResidual; //esto representa el cuello de botella
+    public final int minResidual; //esto representa el cuello de botella (al momento de buscar)
 
     public CandidateRoute(int pedidoId, List<String> arcIds,
                           LocalDateTime depUTC, LocalDateTime arrUTC,
@@ -19,8 +21,42 @@ public class CandidateRoute {
         this.arcIds   = arcIds;
         this.depUTC   = depUTC;
         this.arrUTC   = arrUTC;
+        this.depMin   = MinutoSim.piso(depUTC);
+        this.arrMin   = MinutoSim.piso(arrUTC);
         this.cost     = cost;
         this.hops     = hops;
         this.minResidual = minResidual;
     }
+
+    //Desde el planificador, que ya trabaja en minutos
+    public CandidateRoute(int pedidoId, List<String> arcIds,
+                          int depMin, int arrMin,
+                          double cost, int hops, int minResidual) {
+        this.pedidoId = pedidoId;
+        this.arcIds   = arcIds;
+        this.depMin   = depMin;
+        this.arrMin   = arrMin;
+        this.depUTC   = MinutoSim.aFecha(depMin);
+        this.arrUTC   = MinutoSim.aFecha(arrMin);
+        this.cost     = cost;
+        this.hops     = hops;
+        this.minResidual = minResidual;
+    }
+
+    private CandidateRoute(CandidateRoute c, int minResidual) {
+        this.pedidoId = c.pedidoId;
+        this.arcIds   = c.arcIds;
+        this.depUTC   = c.depUTC;
+        this.arrUTC   = c.arrUTC;
+        this.depMin   = c.depMin;
+        this.arrMin   = c.arrMin;
+        this.cost     = c.cost;
+        this.hops     = c.hops;
+        this.minResidual = minResidual;
+    }
+
+    //La misma ruta con el cuello de botella recalculado (la candidata original no cambia: puede estar en caché)
+    public CandidateRoute conMinResidual(int minResidual) {
+        return minResidual == this.minResidual ? this : new CandidateRoute(this, minResidual);
+    }
 }
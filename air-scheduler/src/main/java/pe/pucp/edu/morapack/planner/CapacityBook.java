@@ -1,17 +1,116 @@
 package pe.pucp.edu.morapack.planner;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.List;
 
+//Capacidad usada por arco, en arreglos de int indexados por el ordinal del arco (TEGraph.Arc.getIndex()).
+//Los arreglos van por bloques de CHUNK arcos: snapshot() comparte los bloques y cada libro copia un bloque
+//solo la primera vez que lo modifica (copy-on-write). Para estados de prueba que se descartan (las reservas
+//tentativas de CandidateIndex.reparar) está overlay(): un libro que guarda solo las diferencias contra este.
+//Los individuos del memético no copian libros: llevan su propia carga por arco (ver AlgoritmoMemetico).
+//Ojo: el TEGraph reutiliza los ordinales de arcos eliminados, así que un libro que no se pasa a
+//advanceTo(t, capBook) queda desactualizado cuando el grafo avanza.
 public class CapacityBook {
-    private final Map<String, Integer> usedByArc = new HashMap<>();
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK = 1 << CHUNK_BITS;
+    private static final int MASK = CHUNK - 1;
 
-    public int used (String arcId){
-        return usedByArc.getOrDefault(arcId, 0);
+    private int[][] chunks = new int[0][];
+    private boolean[] propio = new boolean[0]; //true si el bloque no se comparte con otro libro
+
+    //Si existe, las esperas (almacén) se llevan por aeropuerto en un segment tree y no arco por arco
+    private final WarehouseBook almacen;
+
+    public static final int SIN_PEDIDO = -1;
+
+    //Aviso de cada reserva/liberación (journal, persistencia en BD)
+    public interface Listener {
+        void reservado(TEGraph.Arc arc, int q, int pedidoId);
+        void liberado(TEGraph.Arc arc, int q, int pedidoId);
+    }
+
+    private static final Listener[] SIN_LISTENERS = new Listener[0];
+    private volatile Listener[] listeners = SIN_LISTENERS;
+
+    public CapacityBook(){
+        this(null);
+    }
+
+    public CapacityBook(WarehouseBook almacen){
+        this.almacen = almacen;
+    }
+
+    public WarehouseBook getAlmacen(){
+        return almacen;
+    }
+
+    public synchronized void addListener(Listener l){
+        Listener[] ls = Arrays.copyOf(listeners, listeners.length + 1);
+        ls[ls.length - 1] = l;
+        listeners = ls;
+    }
+
+    public synchronized void removeListener(Listener l){
+        Listener[] ls = listeners;
+        for (int i = 0; i < ls.length; i++){
+            if (ls[i] != l) continue;
+            Listener[] nuevo = new Listener[ls.length - 1];
+            System.arraycopy(ls, 0, nuevo, 0, i);
+            System.arraycopy(ls, i + 1, nuevo, i, ls.length - i - 1);
+            listeners = nuevo;
+            return;
+        }
+    }
+
+    protected void avisarReserva(TEGraph.Arc arc, int q, int pedidoId){
+        for (Listener l : listeners) l.reservado(arc, q, pedidoId);
+    }
+
+    protected void avisarLiberacion(TEGraph.Arc arc, int q, int pedidoId){
+        for (Listener l : listeners) l.liberado(arc, q, pedidoId);
+    }
+
+    private boolean enAlmacen(TEGraph.Arc arc){
+        return almacen != null && arc.getArcType() == ArcType.ESPERA && almacen.cubre(arc);
+    }
+
+    //true si una liberación deja el arco en 0 como mucho (celdas por arco); las esperas del WarehouseBook
+    //suman sin piso. El journal lo usa para llevar el mismo uso que daría reaplicar sus registros
+    boolean acotaEnCero(TEGraph.Arc arc){
+        return !enAlmacen(arc);
+    }
+
+    // ---- Por ordinal ----
+    int usedAt(int index){
+        int c = index >>> CHUNK_BITS;
+        if (c >= chunks.length || chunks[c] == null) return 0;
+        return chunks[c][index & MASK];
+    }
+
+    private void add(int index, int q){
+        int c = index >>> CHUNK_BITS;
+        if (c >= chunks.length){
+            int n = Math.max(c + 1, chunks.length * 2);
+            chunks = Arrays.copyOf(chunks, n);
+            propio = Arrays.copyOf(propio, n);
+        }
+        if (chunks[c] == null){
+            chunks[c] = new int[CHUNK];
+            propio[c] = true;
+        } else if (!propio[c]){
+            chunks[c] = chunks[c].clone();
+            propio[c] = true;
+        }
+        int v = chunks[c][index & MASK] + q;
+        chunks[c][index & MASK] = Math.max(0, v);
+    }
+
+    public int used (TEGraph.Arc arc){
+        return enAlmacen(arc) ? almacen.used(arc) : usedAt(arc.getIndex());
     }
 
     public int residual(TEGraph.Arc arc){
-        return Math.max(0, arc.getCapacity() - used(arc.getArcId()));
+        return Math.max(0, arc.getCapacity() - used(arc));
     }
 
     public boolean canFit(TEGraph.Arc arc, int q){
@@ -19,12 +118,122 @@ public class CapacityBook {
     }
 
     public void reserve(TEGraph.Arc arc, int q){
-        usedByArc.merge(arc.getArcId(), q, Integer::sum);
+        reserve(arc, q, SIN_PEDIDO);
+    }
+
+    public void reserve(TEGraph.Arc arc, int q, int pedidoId){
+        if (enAlmacen(arc)) almacen.reserve(arc, q);
+        else add(arc.getIndex(), q);
+        avisarReserva(arc, q, pedidoId);
     }
 
     public void release(TEGraph.Arc arc, int q){
-        usedByArc.merge(arc.getArcId(), -q, Integer::sum);
-        if (used(arc.getArcId()) <= 0) usedByArc.remove(arc.getArcId());
+        release(arc, q, SIN_PEDIDO);
+    }
+
+    public void release(TEGraph.Arc arc, int q, int pedidoId){
+        if (enAlmacen(arc)) almacen.reserve(arc, -q);
+        else add(arc.getIndex(), -q);
+        avisarLiberacion(arc, q, pedidoId);
+    }
+
+    //Reserva solo si cabe; devuelve false sin tocar nada si no
+    public boolean tryReserve(TEGraph.Arc arc, int q){
+        return tryReserve(arc, q, SIN_PEDIDO);
+    }
+
+    public boolean tryReserve(TEGraph.Arc arc, int q, int pedidoId){
+        if (!canFit(arc, q)) return false;
+        reserve(arc, q, pedidoId);
+        return true;
+    }
+
+    //Todo o nada: si algún arco no alcanza se deshacen las reservas ya hechas del camino
+    public boolean tryReservePath(List<TEGraph.Arc> arcs, int q){
+        return tryReservePath(arcs, q, SIN_PEDIDO);
+    }
+
+    public boolean tryReservePath(List<TEGraph.Arc> arcs, int q, int pedidoId){
+        for (int i = 0; i < arcs.size(); i++){
+            if (!tryReserve(arcs.get(i), q, pedidoId)){
+                for (int j = i - 1; j >= 0; j--) release(arcs.get(j), q, pedidoId);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean tryReservePath(List<String> arcIds, TEGraph g, int q){
+        return tryReservePath(arcIds, g, q, SIN_PEDIDO);
+    }
+
+    public boolean tryReservePath(List<String> arcIds, TEGraph g, int q, int pedidoId){
+        List<TEGraph.Arc> arcs = new java.util.ArrayList<>(arcIds.size());
+        for (String arcId : arcIds){
+            TEGraph.Arc a = g.arcsById.get(arcId);
+            if (a != null) arcs.add(a);
+        }
+        return tryReservePath(arcs, q, pedidoId);
+    }
+
+    //Descarta el registro de un arco que ya no existe en el grafo (horizonte deslizante)
+    public void evict(TEGraph.Arc arc){
+        int u = usedAt(arc.getIndex());
+        if (u != 0) add(arc.getIndex(), -u);
+    }
+
+    // ---- Snapshots y overlays ----
+    //Copia lógica en O(bloques): comparte los bloques y ambos libros copian al escribir
+    public CapacityBook snapshot(){
+        CapacityBook s = new CapacityBook(almacen == null ? null : almacen.copia());
+        s.chunks = chunks.clone();
+        s.propio = new boolean[chunks.length];
+        Arrays.fill(propio, false);
+        return s;
+    }
+
+    //Libro liviano que registra solo diferencias contra este (que no debería cambiar mientras se use)
+    public CapacityOverlay overlay(){
+        return new CapacityOverlay(this);
+    }
+
+    // ---- Almacén por ventana ----
+    //Menor residual de almacén en el aeropuerto durante [desdeMin, hastaMin), en una consulta si hay WarehouseBook
+    public int residualEspera(String iata, int desdeMin, int hastaMin){
+        if (almacen != null) return almacen.residual(iata, desdeMin, hastaMin);
+        return -1; //sin WarehouseBook: el llamador recorre las esperas
+    }
+
+    //Reserva todos los arcos del camino; las esperas consecutivas de un mismo aeropuerto van como una sola estadía
+    public void reservePath(List<String> arcIds, TEGraph g, int q){
+        reservePath(arcIds, g, q, SIN_PEDIDO);
+    }
+
+    public void reservePath(List<String> arcIds, TEGraph g, int q, int pedidoId){
+        int i = 0;
+        while (i < arcIds.size()) {
+            TEGraph.Arc a = g.arcsById.get(arcIds.get(i++));
+            if (a == null) continue;
+            if (!enAlmacen(a)) {
+                reserve(a, q, pedidoId);
+                continue;
+            }
+            Aeropuerto ap = a.getFrom().getAeropuerto();
+            int hasta = a.getTo().getMinuto();
+            int fin = i;
+            while (fin < arcIds.size()) {
+                TEGraph.Arc b = g.arcsById.get(arcIds.get(fin));
+                if (b == null || !enAlmacen(b) || b.getFrom().getAeropuerto() != ap || b.getFrom().getMinuto() != hasta) break;
+                hasta = b.getTo().getMinuto();
+                fin++;
+            }
+            almacen.reserveStay(ap.getCodigo(), a.getFrom().getMinuto(), hasta, q);
+            if (listeners.length > 0) {
+                avisarReserva(a, q, pedidoId);
+                for (int j = i; j < fin; j++) avisarReserva(g.arcsById.get(arcIds.get(j)), q, pedidoId);
+            }
+            i = fin;
+        }
     }
 
     //Helpers para impresión:
@@ -33,7 +242,7 @@ public class CapacityBook {
         for (String arcId : arcIds) {
             pe.pucp.edu.morapack.planner.TEGraph.Arc a = g.arcsById.get(arcId);
             if (a == null) continue;
-            int res = residual(a); // = max(0, a.getCapacity() - used(arcId))
+            int res = residual(a); // = max(0, a.getCapacity() - used(a))
             if (res < min) min = res;
         }
         return (min == Integer.MAX_VALUE) ? 0 : min;
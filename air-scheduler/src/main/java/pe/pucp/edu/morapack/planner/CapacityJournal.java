@@ -0,0 +1,384 @@
+package pe.pucp.edu.morapack.planner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import static pe.pucp.edu.morapack.planner.SimulationConfig.SIM_DATE;
+
+//Journal (write-ahead) de las reservas de un CapacityBook, para no perder el plan si el proceso se cae.
+//Cada reserva/liberación se agrega como registro binario (lsn, op, pedido, cantidad, arco); los registros
+//se acumulan en memoria y se escriben + fsync en grupo (cuando se llena el buffer o cada grupoMs),
+//así que una reserva es durable como mucho grupoMs después, o al llamar sync().
+//Cada compactarCada registros el hilo del flusher escribe un snapshot con el total usado por arco y vacía
+//el journal (el hilo que reserva solo lo pide).
+//Ese total sale de lo que el propio journal registró (snapshot cargado + registros), no de book.used():
+//el book puede ir adelantado (reservePath reserva la estadía entera antes de avisar arco por arco, y en un
+//ConcurrentCapacityBook otros hilos ya sumaron con CAS lo que todavía no se registró), así que el snapshot
+//con su lsn refleja exactamente los registros hasta ese lsn.
+//Un error de E/S no sale por el listener (dejaría un camino a medio reservar): queda guardado, el journal
+//deja de escribir y sync()/close() lo informan.
+//Al arrancar (abrir) se aplica el snapshot y luego la cola del journal con lsn mayor al del snapshot.
+//
+//El arco se guarda con una clave estable (aeropuerto y minuto de cada extremo), no con su ordinal,
+//porque el ordinal depende del orden en que se armó el grafo.
+//
+//Formato (big-endian):
+//  journal:  int MAGIC, int VERSION, long simDate(epochDay), [int largo, int crc, registro]*
+//  registro: long lsn, byte op, int pedidoId, int q, arco
+//  snapshot: int MAGIC_SNAPSHOT, int VERSION, long simDate, long ultimoLsn, int n, [arco, int usado]*, long crc
+//  arco:     string origen, int minutoOrigen, string destino, int minutoDestino
+public class CapacityJournal implements CapacityBook.Listener, AutoCloseable {
+    public static final int MAGIC = 0x4D504B4A;          //"MPKJ"
+    public static final int MAGIC_SNAPSHOT = 0x4D504B43; //"MPKC"
+    public static final int VERSION = 1;
+
+    private static final byte OP_RESERVA = 1;
+    private static final byte OP_LIBERA = 2;
+    private static final int ENCABEZADO = 16;
+
+    private final Path journal;
+    private final Path snapshot;
+    private final TEGraph g;
+    private final CapacityBook book;
+    private final LocalDate base;
+    private final int compactarCada;
+
+    private final FileChannel canal;
+    private final ByteBuffer pendiente = ByteBuffer.allocate(1 << 16);
+    private final ByteBuffer registro = ByteBuffer.allocate(512);
+    private final CRC32 crc = new CRC32();
+    private final ScheduledExecutorService flusher;
+
+    //Uso por arco según los registros (lo que se escribe al compactar)
+    private final Map<TEGraph.Arc, int[]> registrado = new HashMap<>();
+
+    private long lsn;
+    private int desdeCompactar;
+    private boolean compactacionPedida;
+    private boolean cerrado;
+    private IOException error; //primer error de E/S; desde ahí no se escribe más
+
+    private CapacityJournal(Path dir, TEGraph g, CapacityBook book, long grupoMs, int compactarCada) throws IOException {
+        this.journal = dir.resolve("capacidad.journal");
+        this.snapshot = dir.resolve("capacidad.snapshot");
+        this.g = g;
+        this.book = book;
+        this.base = SIM_DATE;
+        this.compactarCada = compactarCada;
+
+        Files.createDirectories(dir);
+        long desde = cargarSnapshot();
+        long finValido = replay(desde);
+
+        this.canal = FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (finValido < ENCABEZADO) {
+            canal.truncate(0);
+            ByteBuffer h = ByteBuffer.allocate(ENCABEZADO);
+            h.putInt(MAGIC).putInt(VERSION).putLong(base.toEpochDay()).flip();
+            canal.write(h, 0);
+            canal.force(true);
+            finValido = ENCABEZADO;
+        } else {
+            canal.truncate(finValido); //descarta un registro a medio escribir
+        }
+        canal.position(finValido);
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "capacity-journal");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(() -> {
+            synchronized (this) {
+                escribirPendiente(true); //un error queda en error y se informa en sync()/close()
+            }
+        }, grupoMs, grupoMs, TimeUnit.MILLISECONDS);
+
+        book.addListener(this);
+    }
+
+    //Reconstruye el book desde dir (snapshot + journal) y desde ahí registra todas sus reservas
+    public static CapacityJournal abrir(Path dir, TEGraph g, CapacityBook book) throws IOException {
+        return abrir(dir, g, book, 20, 100_000);
+    }
+
+    public static CapacityJournal abrir(Path dir, TEGraph g, CapacityBook book, long grupoMs, int compactarCada) throws IOException {
+        return new CapacityJournal(dir, g, book, grupoMs, compactarCada);
+    }
+
+    // ---- Listener ----
+    @Override
+    public void reservado(TEGraph.Arc arc, int q, int pedidoId) {
+        append(OP_RESERVA, arc, q, pedidoId);
+    }
+
+    @Override
+    public void liberado(TEGraph.Arc arc, int q, int pedidoId) {
+        append(OP_LIBERA, arc, q, pedidoId);
+    }
+
+    private synchronized void append(byte op, TEGraph.Arc arc, int q, int pedidoId) {
+        if (cerrado || error != null) return;
+        registro.clear();
+        registro.putLong(++lsn).put(op).putInt(pedidoId).putInt(q);
+        putArco(registro, arc);
+        registro.flip();
+
+        crc.reset();
+        crc.update(registro.duplicate());
+        if (pendiente.remaining() < registro.remaining() + 8) escribirPendiente(false);
+        pendiente.putInt(registro.remaining()).putInt((int) crc.getValue()).put(registro);
+        anotar(arc, op == OP_RESERVA ? q : -q);
+
+        if (compactarCada > 0 && ++desdeCompactar >= compactarCada && !compactacionPedida) {
+            compactacionPedida = true;
+            flusher.execute(this::compactarSiFuePedido);
+        }
+    }
+
+    // ---- Group commit ----
+    //Escribe lo pendiente y hace fsync; falla si el journal ya tuvo un error de E/S
+    public synchronized void sync() throws IOException {
+        escribirPendiente(true);
+        revisarError();
+    }
+
+    private void escribirPendiente(boolean force) {
+        if (cerrado || error != null) return;
+        try {
+            pendiente.flip();
+            boolean habia = pendiente.hasRemaining();
+            while (pendiente.hasRemaining()) canal.write(pendiente);
+            pendiente.clear();
+            if (habia && force) canal.force(false);
+        } catch (IOException e) {
+            fallar(e);
+        }
+    }
+
+    private void fallar(IOException e) {
+        if (error != null) return;
+        error = e;
+        pendiente.clear();
+        System.out.println("No se pudo escribir el journal de capacidad, deja de registrar: " + e.getMessage());
+    }
+
+    private void revisarError() throws IOException {
+        if (error != null) throw new IOException("El journal de capacidad dejó de registrar", error);
+    }
+
+    //Error de E/S que detuvo el journal, o null
+    public synchronized IOException getError() {
+        return error;
+    }
+
+    //Mismo piso en 0 que el book al reaplicar el registro
+    private void anotar(TEGraph.Arc arc, int delta) {
+        int[] u = registrado.computeIfAbsent(arc, a -> new int[1]);
+        u[0] += delta;
+        if (u[0] < 0 && book.acotaEnCero(arc)) u[0] = 0;
+        if (u[0] == 0) registrado.remove(arc);
+    }
+
+    // ---- Compactación ----
+    //Snapshot del uso registrado por arco + journal vacío. El snapshot guarda el último lsn incluido,
+    //así que si el proceso cae entre ambos pasos el replay no aplica dos veces lo mismo.
+    public synchronized void compactar() {
+        if (cerrado || error != null) return;
+        desdeCompactar = 0;
+        compactacionPedida = false;
+        try {
+            escribirPendiente(true);
+            if (error != null) return;
+
+            ByteBuffer buf = ByteBuffer.allocate(1 << 16);
+            int n = 0;
+            for (Iterator<Map.Entry<TEGraph.Arc, int[]>> it = registrado.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<TEGraph.Arc, int[]> e = it.next();
+                TEGraph.Arc a = e.getKey();
+                if (g.arcsById.get(a.getArcId()) != a) { //quedó fuera del horizonte
+                    it.remove();
+                    continue;
+                }
+                int usado = e.getValue()[0];
+                if (buf.remaining() < 512) buf = crecer(buf);
+                putArco(buf, a);
+                buf.putInt(usado);
+                n++;
+            }
+            buf.flip();
+
+            ByteBuffer h = ByteBuffer.allocate(28);
+            h.putInt(MAGIC_SNAPSHOT).putInt(VERSION).putLong(base.toEpochDay()).putLong(lsn).putInt(n).flip();
+            CRC32 c = new CRC32();
+            c.update(h.duplicate());
+            c.update(buf.duplicate());
+            ByteBuffer fin = ByteBuffer.allocate(8).putLong(c.getValue());
+            fin.flip();
+
+            Path tmp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (h.hasRemaining()) ch.write(h);
+                while (buf.hasRemaining()) ch.write(buf);
+                while (fin.hasRemaining()) ch.write(fin);
+                ch.force(true);
+            }
+            Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            canal.truncate(ENCABEZADO);
+            canal.position(ENCABEZADO);
+            canal.force(true);
+        } catch (IOException e) {
+            fallar(e);
+        }
+    }
+
+    //En el flusher: append pide la compactación y no la hace en el hilo que reserva
+    private synchronized void compactarSiFuePedido() {
+        if (compactacionPedida) compactar();
+    }
+
+    private static ByteBuffer crecer(ByteBuffer buf) {
+        ByteBuffer nuevo = ByteBuffer.allocate(buf.capacity() * 2);
+        buf.flip();
+        nuevo.put(buf);
+        return nuevo;
+    }
+
+    // ---- Arranque ----
+    //Aplica el snapshot (si es válido) y devuelve su último lsn
+    private long cargarSnapshot() throws IOException {
+        if (!Files.exists(snapshot)) return 0;
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(snapshot));
+        if (buf.remaining() < 36) return 0;
+
+        CRC32 c = new CRC32();
+        c.update(buf.array(), 0, buf.limit() - 8);
+        if (buf.getLong(buf.limit() - 8) != c.getValue()) {
+            System.out.println("Snapshot de capacidad corrupto, se ignora: " + snapshot);
+            return 0;
+        }
+        if (buf.getInt() != MAGIC_SNAPSHOT || buf.getInt() != VERSION) return 0;
+        LocalDate fecha = LocalDate.ofEpochDay(buf.getLong());
+        long ultimo = buf.getLong();
+        int n = buf.getInt();
+        for (int i = 0; i < n; i++) {
+            TEGraph.Arc a = getArco(buf, fecha);
+            int usado = buf.getInt();
+            if (a != null) {
+                book.reserve(a, usado);
+                anotar(a, usado);
+            }
+        }
+        lsn = ultimo;
+        return ultimo;
+    }
+
+    //Aplica los registros con lsn > desde; devuelve la posición donde termina el último registro íntegro
+    private long replay(long desde) throws IOException {
+        if (!Files.exists(journal)) return 0;
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(journal));
+        if (buf.remaining() < ENCABEZADO || buf.getInt() != MAGIC || buf.getInt() != VERSION) return 0;
+        LocalDate fecha = LocalDate.ofEpochDay(buf.getLong());
+
+        CRC32 c = new CRC32();
+        int aplicados = 0;
+        while (buf.remaining() >= 8) {
+            int inicio = buf.position();
+            int largo = buf.getInt();
+            int esperado = buf.getInt();
+            if (largo <= 0 || largo > buf.remaining()) { buf.position(inicio); break; }
+            c.reset();
+            c.update(buf.array(), buf.position(), largo);
+            if ((int) c.getValue() != esperado) { buf.position(inicio); break; }
+
+            long l = buf.getLong();
+            byte op = buf.get();
+            int pedidoId = buf.getInt();
+            int q = buf.getInt();
+            TEGraph.Arc a = getArco(buf, fecha);
+            if (l > desde && a != null) {
+                if (op == OP_RESERVA) {
+                    book.reserve(a, q, pedidoId);
+                    anotar(a, q);
+                } else if (op == OP_LIBERA) {
+                    book.release(a, q, pedidoId);
+                    anotar(a, -q);
+                }
+                aplicados++;
+            }
+            lsn = Math.max(lsn, l);
+        }
+        if (aplicados > 0) System.out.println("Journal de capacidad: " + aplicados + " registros aplicados");
+        return buf.position();
+    }
+
+    // ---- Claves de arco ----
+    private static void putArco(ByteBuffer buf, TEGraph.Arc a) {
+        putString(buf, a.getFrom().getAeropuerto().getCodigo());
+        buf.putInt(a.getFrom().getMinuto());
+        putString(buf, a.getTo().getAeropuerto().getCodigo());
+        buf.putInt(a.getTo().getMinuto());
+    }
+
+    //Arco del grafo actual con esa clave, o null si ya no existe (quedó fuera del horizonte)
+    private TEGraph.Arc getArco(ByteBuffer buf, LocalDate fecha) {
+        String origen = getString(buf);
+        int desdeMin = buf.getInt();
+        String destino = getString(buf);
+        int hastaMin = buf.getInt();
+        String arcId = origen + "@" + MinutoSim.aFecha(fecha, desdeMin) + "→" + destino + "@" + MinutoSim.aFecha(fecha, hastaMin);
+        return g.arcsById.get(arcId);
+    }
+
+    private static void putString(ByteBuffer buf, String s) {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        buf.putShort((short) b.length);
+        buf.put(b);
+    }
+
+    private static String getString(ByteBuffer buf) {
+        byte[] b = new byte[buf.getShort()];
+        buf.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    public synchronized long getLsn() {
+        return lsn;
+    }
+
+    //Deja todo en disco y desconecta el journal del book; informa si hubo algún error de E/S
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (cerrado) return;
+            book.removeListener(this);
+            escribirPendiente(true);
+            cerrado = true;
+            try {
+                canal.close();
+            } catch (IOException e) {
+                fallar(e);
+            }
+        }
+        flusher.shutdown();
+        synchronized (this) {
+            revisarError();
+        }
+    }
+}
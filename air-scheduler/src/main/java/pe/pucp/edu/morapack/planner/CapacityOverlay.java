@@ -0,0 +1,142 @@
+package pe.pucp.edu.morapack.planner;
+
+import java.util.Arrays;
+
+//Libro de capacidad que guarda solo diferencias (arco -> delta) sobre un CapacityBook base congelado.
+//Las diferencias van en una tabla hash abierta de int (sin boxing ni claves String), así que copiar
+//un overlay cuesta lo que ocupan sus deltas y no todo el libro.
+public class CapacityOverlay extends CapacityBook {
+    private static final int VACIO = -1;
+
+    private final CapacityBook base;
+    private int[] claves;  //ordinal del arco, o VACIO
+    private int[] deltas;
+    private int size;
+
+    CapacityOverlay(CapacityBook base) {
+        super(null); //las esperas también van como delta por arco
+        this.base = base;
+        this.claves = new int[16];
+        this.deltas = new int[16];
+        Arrays.fill(claves, VACIO);
+    }
+
+    private CapacityOverlay(CapacityOverlay otro) {
+        super(null);
+        this.base = otro.base;
+        this.claves = otro.claves.clone();
+        this.deltas = otro.deltas.clone();
+        this.size = otro.size;
+    }
+
+    public CapacityBook getBase() {
+        return base;
+    }
+
+    // ---- Tabla hash abierta (sondeo lineal) ----
+    private int slot(int index) {
+        int mask = claves.length - 1;
+        int h = index * 0x9E3779B9;
+        int i = (h ^ (h >>> 16)) & mask;
+        while (claves[i] != VACIO && claves[i] != index) i = (i + 1) & mask;
+        return i;
+    }
+
+    public int delta(int index) {
+        int i = slot(index);
+        return claves[i] == VACIO ? 0 : deltas[i];
+    }
+
+    public int delta(TEGraph.Arc arc) {
+        return delta(arc.getIndex());
+    }
+
+    private void addDelta(int index, int q) {
+        int i = slot(index);
+        if (claves[i] == VACIO) {
+            if (q == 0) return;
+            if ((size + 1) * 2 > claves.length) {
+                crecer();
+                i = slot(index);
+            }
+            claves[i] = index;
+            deltas[i] = q;
+            size++;
+            return;
+        }
+        deltas[i] += q;
+        //Si vuelve a cero se deja la entrada (sin borrado en sondeo lineal); no cambia used()
+    }
+
+    private void crecer() {
+        int[] viejasClaves = claves, viejosDeltas = deltas;
+        claves = new int[viejasClaves.length * 2];
+        deltas = new int[viejasClaves.length * 2];
+        Arrays.fill(claves, VACIO);
+        for (int i = 0; i < viejasClaves.length; i++) {
+            if (viejasClaves[i] == VACIO) continue;
+            int j = slot(viejasClaves[i]);
+            claves[j] = viejasClaves[i];
+            deltas[j] = viejosDeltas[i];
+        }
+    }
+
+    //Ordinales de los arcos con delta distinto de cero
+    public int[] arcosModificados() {
+        int[] out = new int[size];
+        int n = 0;
+        for (int i = 0; i < claves.length; i++) {
+            if (claves[i] != VACIO && deltas[i] != 0) out[n++] = claves[i];
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    public boolean isEmpty() {
+        for (int i = 0; i < claves.length; i++) {
+            if (claves[i] != VACIO && deltas[i] != 0) return false;
+        }
+        return true;
+    }
+
+    //Deja el overlay igual a otro con la misma base (reutiliza los arreglos si alcanzan)
+    public void copiarDesde(CapacityOverlay otro) {
+        if (claves.length == otro.claves.length) {
+            System.arraycopy(otro.claves, 0, claves, 0, claves.length);
+            System.arraycopy(otro.deltas, 0, deltas, 0, deltas.length);
+        } else {
+            claves = otro.claves.clone();
+            deltas = otro.deltas.clone();
+        }
+        size = otro.size;
+    }
+
+    // ---- CapacityBook ----
+    @Override
+    public int used(TEGraph.Arc arc) {
+        return Math.max(0, base.used(arc) + delta(arc.getIndex()));
+    }
+
+    @Override
+    public void reserve(TEGraph.Arc arc, int q, int pedidoId) {
+        addDelta(arc.getIndex(), q);
+        avisarReserva(arc, q, pedidoId);
+    }
+
+    @Override
+    public void release(TEGraph.Arc arc, int q, int pedidoId) {
+        addDelta(arc.getIndex(), -q);
+        avisarLiberacion(arc, q, pedidoId);
+    }
+
+    @Override
+    public void evict(TEGraph.Arc arc) {
+        int d = delta(arc.getIndex());
+        if (d != 0) addDelta(arc.getIndex(), -d);
+    }
+
+    //Copia de los deltas, sobre la misma base
+    @Override
+    public CapacityOverlay snapshot() {
+        return new CapacityOverlay(this);
+    }
+}
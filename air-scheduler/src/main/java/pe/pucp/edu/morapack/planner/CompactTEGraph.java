@@ -0,0 +1,249 @@
+package pe.pucp.edu.morapack.planner;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static pe.pucp.edu.morapack.planner.SimulationConfig.SIM_DATE;
+
+//Representación compacta del grafo tiempo-expandido:
+//- nodos y arcos con IDs enteros densos
+//- adyacencia en formato CSR (los arcos salientes del nodo n son [outStart[n], outStart[n+1]))
+//- tiempos como minutos desde el inicio de SIM_DATE
+//Los IDs en texto (ej: SPIM@2025-09-07T10:00) solo se arman a pedido para imprimir.
+public final class CompactTEGraph {
+    private static final int MIN_POR_DIA = MinutoSim.MIN_POR_DIA;
+    private static final ArcType[] TIPOS = ArcType.values();
+
+    private final LocalDate base;
+    private final int horizonDays;
+
+    //Aeropuertos (índice denso, ordenados por código)
+    private final String[] codigos;
+    private final Aeropuerto[] aeropuertos;
+    private final Map<String, Integer> idxAeropuerto = new HashMap<>();
+
+    //Vuelos (índice denso) para recuperar el Vuelo de un arco
+    private final Vuelo[] vuelos;
+
+    //Nodos ordenados por (aeropuerto, minuto). Los del aeropuerto a son [airportStart[a], airportStart[a+1])
+    private final int[] airportStart;
+    private final int[] nodeAirport;
+    private final int[] nodeMinute;
+
+    //Arcos en orden CSR
+    private final int[] outStart;
+    private final int[] arcFrom;
+    private final int[] arcTo;
+    private final int[] arcCapacity;
+    private final int[] arcVuelo;   //-1 si es espera
+    private final byte[] arcType;   //ordinal de ArcType
+
+    public CompactTEGraph(AeropuertosMap aeropuertosMap, VuelosMap vuelosMap, int horizonDays) {
+        this.base = SIM_DATE;
+        this.horizonDays = Math.max(1, horizonDays);
+
+        //1. Aeropuertos
+        Map<String, Aeropuerto> aps = aeropuertosMap.getAeropuertos();
+        codigos = aps.keySet().toArray(new String[0]);
+        Arrays.sort(codigos);
+        aeropuertos = new Aeropuerto[codigos.length];
+        for (int i = 0; i < codigos.length; i++) {
+            aeropuertos[i] = aps.get(codigos[i]);
+            idxAeropuerto.put(codigos[i], i);
+        }
+        int A = codigos.length;
+
+        //2. Vuelos en el mismo orden que recorre TEGraph
+        List<Vuelo> lista = new ArrayList<>();
+        for (List<Vuelo> vs : vuelosMap.getVuelosPorOrigen().values()) lista.addAll(vs);
+        vuelos = lista.toArray(new Vuelo[0]);
+        int F = vuelos.length;
+
+        int[] vOrig = new int[F], vDest = new int[F], vDep = new int[F], vDur = new int[F];
+        for (int f = 0; f < F; f++) {
+            Vuelo v = vuelos[f];
+            vOrig[f] = idxAeropuerto.get(v.getOrigen());
+            vDest[f] = idxAeropuerto.get(v.getDestino());
+            vDep[f] = MinutoSim.delDia(v.getHoraGMTOrigen());
+            int arr = MinutoSim.delDia(v.getHoraGMTDestino());
+            if (arr < vDep[f]) arr += MIN_POR_DIA;
+            vDur[f] = arr - vDep[f];
+        }
+
+        //3. Eventos por aeropuerto (salidas y llegadas), ordenados y sin repetidos
+        int[] cuenta = new int[A];
+        for (int f = 0; f < F; f++) {
+            cuenta[vOrig[f]] += this.horizonDays;
+            cuenta[vDest[f]] += this.horizonDays;
+        }
+        int[][] eventos = new int[A][];
+        for (int a = 0; a < A; a++) eventos[a] = new int[cuenta[a]];
+        Arrays.fill(cuenta, 0);
+        for (int f = 0; f < F; f++) {
+            for (int d = 0; d < this.horizonDays; d++) {
+                int dep = d * MIN_POR_DIA + vDep[f];
+                eventos[vOrig[f]][cuenta[vOrig[f]]++] = dep;
+                eventos[vDest[f]][cuenta[vDest[f]]++] = dep + vDur[f];
+            }
+        }
+
+        airportStart = new int[A + 1];
+        for (int a = 0; a < A; a++) {
+            Arrays.sort(eventos[a]);
+            airportStart[a + 1] = airportStart[a] + unicos(eventos[a]);
+        }
+        int N = airportStart[A];
+        nodeAirport = new int[N];
+        nodeMinute = new int[N];
+        for (int a = 0; a < A; a++) {
+            int n = airportStart[a];
+            int[] ev = eventos[a];
+            for (int i = 0; i < ev.length; i++) {
+                if (i > 0 && ev[i] == ev[i - 1]) continue;
+                nodeAirport[n] = a;
+                nodeMinute[n] = ev[i];
+                n++;
+            }
+        }
+
+        //4. Grado de salida: vuelos + un arco de espera hacia el siguiente evento del aeropuerto
+        outStart = new int[N + 1];
+        int[] grado = new int[N];
+        int[] instFrom = new int[F * this.horizonDays];
+        int[] instTo = new int[F * this.horizonDays];
+        int inst = 0;
+        for (int f = 0; f < F; f++) {
+            for (int d = 0; d < this.horizonDays; d++) {
+                int dep = d * MIN_POR_DIA + vDep[f];
+                instFrom[inst] = findNode(vOrig[f], dep);
+                instTo[inst] = findNode(vDest[f], dep + vDur[f]);
+                grado[instFrom[inst]]++;
+                inst++;
+            }
+        }
+        for (int a = 0; a < A; a++) {
+            for (int n = airportStart[a]; n < airportStart[a + 1] - 1; n++) grado[n]++;
+        }
+        for (int n = 0; n < N; n++) outStart[n + 1] = outStart[n] + grado[n];
+
+        int M = outStart[N];
+        arcFrom = new int[M];
+        arcTo = new int[M];
+        arcCapacity = new int[M];
+        arcVuelo = new int[M];
+        arcType = new byte[M];
+
+        //5. Llenado CSR: primero vuelos (en orden de vuelo), luego la espera (igual que TEGraph.out)
+        int[] pos = Arrays.copyOf(outStart, N);
+        inst = 0;
+        for (int f = 0; f < F; f++) {
+            for (int d = 0; d < this.horizonDays; d++) {
+                int from = instFrom[inst], to = instTo[inst];
+                inst++;
+                int arc = pos[from]++;
+                arcFrom[arc] = from;
+                arcTo[arc] = to;
+                arcCapacity[arc] = vuelos[f].getCapacidad();
+                arcVuelo[arc] = f;
+                arcType[arc] = (byte) ArcType.VUELO.ordinal();
+            }
+        }
+        for (int a = 0; a < A; a++) {
+            int capacidad = Math.max(1, aeropuertos[a].getCapacidad());
+            for (int n = airportStart[a]; n < airportStart[a + 1] - 1; n++) {
+                int arc = pos[n]++;
+                arcFrom[arc] = n;
+                arcTo[arc] = n + 1;
+                arcCapacity[arc] = capacidad;
+                arcVuelo[arc] = -1;
+                arcType[arc] = (byte) ArcType.ESPERA.ordinal();
+            }
+        }
+    }
+
+    //Cuenta los valores distintos de un arreglo ordenado
+    private static int unicos(int[] ordenado) {
+        int n = 0;
+        for (int i = 0; i < ordenado.length; i++) {
+            if (i == 0 || ordenado[i] != ordenado[i - 1]) n++;
+        }
+        return n;
+    }
+
+    // ---- Consultas ----
+    public int nodeCount() { return nodeAirport.length; }
+    public int arcCount() { return arcTo.length; }
+    public int airportCount() { return codigos.length; }
+    public int getHorizonDays() { return horizonDays; }
+    public LocalDate getBase() { return base; }
+
+    public int airportIndex(String codigo) {
+        Integer idx = idxAeropuerto.get(codigo);
+        return idx == null ? -1 : idx;
+    }
+    public String airportCode(int a) { return codigos[a]; }
+    public Aeropuerto airport(int a) { return aeropuertos[a]; }
+
+    public int nodeAirport(int n) { return nodeAirport[n]; }
+    public int nodeMinute(int n) { return nodeMinute[n]; }
+    public LocalDateTime nodeTime(int n) { return toDateTime(nodeMinute[n]); }
+
+    public int outStart(int n) { return outStart[n]; }
+    public int outEnd(int n) { return outStart[n + 1]; }
+
+    public int arcFrom(int arc) { return arcFrom[arc]; }
+    public int arcTo(int arc) { return arcTo[arc]; }
+    public int arcCapacity(int arc) { return arcCapacity[arc]; }
+    public ArcType arcType(int arc) { return TIPOS[arcType[arc]]; }
+    public boolean isVuelo(int arc) { return arcVuelo[arc] >= 0; }
+    public Vuelo arcVuelo(int arc) { return arcVuelo[arc] < 0 ? null : vuelos[arcVuelo[arc]]; }
+
+    //Nodo exacto (aeropuerto, minuto) o -1 si no hay evento en ese instante
+    public int findNode(int airport, int minute) {
+        int lo = airportStart[airport], hi = airportStart[airport + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int m = nodeMinute[mid];
+            if (m < minute) lo = mid + 1;
+            else if (m > minute) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    //Primer nodo del aeropuerto con minuto >= minute, o -1 (equivale a eventsByAirport.ceiling)
+    public int ceilingNode(int airport, int minute) {
+        int lo = airportStart[airport], hi = airportStart[airport + 1];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (nodeMinute[mid] < minute) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo < airportStart[airport + 1] ? lo : -1;
+    }
+
+    public int toMinute(LocalDateTime t) {
+        return MinutoSim.piso(base, t);
+    }
+
+    public LocalDateTime toDateTime(int minute) {
+        return MinutoSim.aFecha(base, minute);
+    }
+
+    // ---- IDs en texto (solo para impresión / compatibilidad con TEGraph) ----
+    public String nodeId(int n) {
+        return codigos[nodeAirport[n]] + "@" + toDateTime(nodeMinute[n]);
+    }
+
+    public String arcId(int arc) {
+        return nodeId(arcFrom[arc]) + "→" + nodeId(arcTo[arc]);
+    }
+
+    public void printOutgoing(int n) {
+        System.out.println("OUT from " + nodeId(n) + ":");
+        for (int a = outStart[n]; a < outStart[n + 1]; a++) {
+            System.out.println("  " + arcType(a) + " : " + nodeId(arcFrom[a]) + " → " + nodeId(arcTo[a]) + "  cap=" + arcCapacity[a]);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package pe.pucp.edu.morapack.planner;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+//CapacityBook para varios hilos (planificadores en paralelo, pedidos REST, simulación) sin lock global.
+//Cada arco es una celda de un AtomicIntegerArray por ordinal y las reservas se hacen con CAS:
+//tryReserve solo suma si todavía cabe, así que dos hilos nunca sobrevenden un vuelo ni un almacén.
+//tryReservePath (heredado) es todo o nada: si un arco falla se liberan los que ya se tomaron.
+//Las esperas se llevan por arco (sin WarehouseBook): el segment tree no es concurrente.
+public class ConcurrentCapacityBook extends CapacityBook {
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK = 1 << CHUNK_BITS;
+    private static final int MASK = CHUNK - 1;
+
+    //Solo crece (cuando el grafo agrega arcos); las celdas nunca se reemplazan
+    private volatile AtomicIntegerArray[] chunks;
+
+    public ConcurrentCapacityBook(TEGraph g) {
+        super(null);
+        int n = (g.arcIndexBound() + CHUNK - 1) >>> CHUNK_BITS;
+        AtomicIntegerArray[] cs = new AtomicIntegerArray[Math.max(1, n)];
+        for (int i = 0; i < cs.length; i++) cs[i] = new AtomicIntegerArray(CHUNK);
+        this.chunks = cs;
+    }
+
+    private ConcurrentCapacityBook(AtomicIntegerArray[] chunks) {
+        super(null);
+        this.chunks = chunks;
+    }
+
+    private AtomicIntegerArray celda(int index) {
+        int c = index >>> CHUNK_BITS;
+        AtomicIntegerArray[] cs = chunks;
+        if (c < cs.length) return cs[c];
+        return crecer(c);
+    }
+
+    //Solo cuando aparece un ordinal nuevo (advanceTo); no se toca en reserve/release normales
+    private synchronized AtomicIntegerArray crecer(int c) {
+        AtomicIntegerArray[] cs = chunks;
+        if (c >= cs.length) {
+            int n = Math.max(c + 1, cs.length * 2);
+            AtomicIntegerArray[] nuevo = Arrays.copyOf(cs, n);
+            for (int i = cs.length; i < n; i++) nuevo[i] = new AtomicIntegerArray(CHUNK);
+            chunks = cs = nuevo;
+        }
+        return cs[c];
+    }
+
+    @Override
+    int usedAt(int index) {
+        int c = index >>> CHUNK_BITS;
+        AtomicIntegerArray[] cs = chunks;
+        return c < cs.length ? cs[c].get(index & MASK) : 0;
+    }
+
+    @Override
+    public int used(TEGraph.Arc arc) {
+        return usedAt(arc.getIndex());
+    }
+
+    @Override
+    public void reserve(TEGraph.Arc arc, int q, int pedidoId) {
+        celda(arc.getIndex()).getAndAdd(arc.getIndex() & MASK, q);
+        avisarReserva(arc, q, pedidoId);
+    }
+
+    @Override
+    public void release(TEGraph.Arc arc, int q, int pedidoId) {
+        AtomicIntegerArray cs = celda(arc.getIndex());
+        int i = arc.getIndex() & MASK;
+        while (true) {
+            int actual = cs.get(i);
+            if (cs.compareAndSet(i, actual, Math.max(0, actual - q))) break;
+        }
+        avisarLiberacion(arc, q, pedidoId);
+    }
+
+    //CAS: suma q solo si el arco todavía tiene residual >= q
+    @Override
+    public boolean tryReserve(TEGraph.Arc arc, int q, int pedidoId) {
+        AtomicIntegerArray cs = celda(arc.getIndex());
+        int i = arc.getIndex() & MASK;
+        int cap = arc.getCapacity();
+        while (true) {
+            int actual = cs.get(i);
+            if (cap - actual < q) return false;
+            if (cs.compareAndSet(i, actual, actual + q)) break;
+        }
+        avisarReserva(arc, q, pedidoId);
+        return true;
+    }
+
+    @Override
+    public void evict(TEGraph.Arc arc) {
+        celda(arc.getIndex()).set(arc.getIndex() & MASK, 0);
+    }
+
+    //Copia independiente (no es atómica respecto de escrituras concurrentes)
+    @Override
+    public ConcurrentCapacityBook snapshot() {
+        AtomicIntegerArray[] cs = chunks;
+        AtomicIntegerArray[] copia = new AtomicIntegerArray[cs.length];
+        for (int c = 0; c < cs.length; c++) {
+            int[] vals = new int[CHUNK];
+            for (int i = 0; i < CHUNK; i++) vals[i] = cs[c].get(i);
+            copia[c] = new AtomicIntegerArray(vals);
+        }
+        return new ConcurrentCapacityBook(copia);
+    }
+}
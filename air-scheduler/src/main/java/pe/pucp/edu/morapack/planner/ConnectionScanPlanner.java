@@ -0,0 +1,345 @@
+package pe.pucp.edu.morapack.planner;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+//Búsqueda de rutas con Connection Scan Algorithm: los vuelos del TEGraph son conexiones con hora,
+//guardadas en arreglos paralelos ordenados por salida, y una consulta las recorre una sola vez en orden
+//(acceso secuencial, sin cola de prioridad). Cada aeropuerto lleva una bolsa de etiquetas Pareto
+//(llegada, escalas, residual) donde el residual de una etiqueta anterior se degrada con la capacidad de
+//almacén de la espera hasta la otra; es la misma dominancia que las marcas de espera de RoutePlanner.
+//Devuelve CandidateRoute con el mismo formato que RoutePlanner (esperas + vuelos del TEGraph) y poda
+//con las mismas cotas (TravelTimeBounds, residual >= cantidad en modo por cantidad, a lo sumo
+//MAX_LABELS_POR_NODO etiquetas empatadas), pero no es un reemplazo exacto de RoutePlanner: allí una
+//etiqueta que llega primero a un nodo se queda aunque después llegue otra que la domina (por ejemplo,
+//3 vuelos antes que 2 con la misma ETA); aquí las bolsas quitan las dominadas. La mejor ETA coincide,
+//pero la k-ésima candidata puede ser otra.
+//paretoLlegadas(...) es la variante de perfil: todas las llegadas no dominadas al destino.
+public class ConnectionScanPlanner implements RouteSearch {
+    private final TEGraph g;
+    private final AeropuertosMap aps;
+    private final SLAService sla;
+    private final CapacityBook capBook; //solo lectura
+
+    private Tabla tabla;
+    private int versionTabla = -1;
+
+    //Mismo criterio que RoutePlanner.setPorCantidad: vuelos y esperas con residual >= cantidad del pedido
+    private boolean porCantidad;
+
+    public void setPorCantidad(boolean porCantidad) {
+        this.porCantidad = porCantidad;
+    }
+
+    //Conexiones (vuelos) ordenadas por minuto de salida
+    private static final class Tabla {
+        final DepartureIndex idx;
+        final TravelTimeBounds cotas;
+        final int[] dep;      //minuto de salida
+        final int[] from;     //aeropuerto de salida
+        final int[] slot;     //índice de la salida en el DepartureIndex del aeropuerto
+        final int[] depEvent;
+        final int[] to;       //aeropuerto de llegada
+        final int[] toEvent;  //-1 si la llegada no está en el índice
+        final int[] arr;      //minuto de llegada
+
+        Tabla(DepartureIndex idx, VuelosMap vuelos) {
+            this.idx = idx;
+            String[] codigos = new String[idx.airportCount()];
+            for (int a = 0; a < codigos.length; a++) codigos[a] = idx.airportCode(a);
+            this.cotas = new TravelTimeBounds(vuelos, codigos, RoutePlanner.MAX_ESCALAS, RoutePlanner.MIN_LAYOVER_MIN);
+            int n = 0;
+            for (int a = 0; a < idx.airportCount(); a++) n += idx.departureCount(a);
+            //Orden por (salida, aeropuerto, slot) con una clave long
+            long[] claves = new long[n];
+            int[] fa = new int[n], fj = new int[n];
+            int c = 0;
+            for (int a = 0; a < idx.airportCount(); a++) {
+                for (int j = 0; j < idx.departureCount(a); j++) {
+                    fa[c] = a;
+                    fj[c] = j;
+                    claves[c] = ((long) idx.depMinute(a, j) << 32) | c;
+                    c++;
+                }
+            }
+            Arrays.sort(claves);
+            dep = new int[n];
+            from = new int[n];
+            slot = new int[n];
+            depEvent = new int[n];
+            to = new int[n];
+            toEvent = new int[n];
+            arr = new int[n];
+            for (int i = 0; i < n; i++) {
+                int o = (int) claves[i];
+                int a = fa[o], j = fj[o];
+                dep[i] = idx.depMinute(a, j);
+                from[i] = a;
+                slot[i] = j;
+                depEvent[i] = idx.depEvent(a, j);
+                to[i] = idx.arrAirport(a, j);
+                toEvent[i] = idx.arrEvent(a, j);
+                arr[i] = toEvent[i] < 0 ? Integer.MAX_VALUE : idx.eventMinute(to[i], toEvent[i]);
+            }
+        }
+
+        //Primera conexión con salida >= minuto
+        int primera(int minuto) {
+            int lo = 0, hi = dep.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (dep[mid] < minuto) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    //Bolsas por aeropuerto (índices de etiquetas del LabelPool), reutilizadas por hilo
+    private static final class Bolsas {
+        int[][] bolsa = new int[0][];
+        int[] n = new int[0];
+        int[] tocadas = new int[64];
+        int nTocadas;
+
+        void preparar(int aeropuertos) {
+            if (bolsa.length < aeropuertos) {
+                bolsa = new int[aeropuertos][];
+                n = new int[aeropuertos];
+                for (int a = 0; a < aeropuertos; a++) bolsa[a] = new int[8];
+                nTocadas = 0;
+            }
+            for (int i = 0; i < nTocadas; i++) n[tocadas[i]] = 0;
+            nTocadas = 0;
+        }
+
+        void agregar(int a, int l) {
+            if (n[a] == 0) {
+                if (nTocadas == tocadas.length) tocadas = Arrays.copyOf(tocadas, nTocadas * 2);
+                tocadas[nTocadas++] = a;
+            }
+            if (n[a] == bolsa[a].length) bolsa[a] = Arrays.copyOf(bolsa[a], n[a] * 2);
+            bolsa[a][n[a]++] = l;
+        }
+    }
+
+    private static final ThreadLocal<Bolsas> BOLSAS = ThreadLocal.withInitial(Bolsas::new);
+
+    public ConnectionScanPlanner(TEGraph g, AeropuertosMap aps, SLAService sla, CapacityBook capBook) {
+        this.g = g;
+        this.aps = aps;
+        this.sla = sla;
+        this.capBook = capBook;
+    }
+
+    private synchronized Tabla tabla() {
+        if (tabla == null || versionTabla != g.getVersion()) {
+            tabla = new Tabla(new DepartureIndex(g), g.getVuelos());
+            versionTabla = g.getVersion();
+        }
+        return tabla;
+    }
+
+    @Override
+    public List<CandidateRoute> generarCandidatas(Pedido p, String origen, int k) {
+        if (p == null || origen == null || origen.isEmpty() || k <= 0) return Collections.emptyList();
+        LabelPool pool = LabelPool.delHilo();
+        List<CandidateRoute> out = new ArrayList<>();
+        int[] llegadas = escanear(pool, p, origen, k, out);
+        if (llegadas == null) return out;
+
+        //Las llegadas ya vienen en el orden en que RoutePlanner las saca de su cola: (t, hops, -minResidual)
+        for (int i = 0; i < llegadas.length && out.size() < k; i++) out.add(candidata(pool, p, llegadas[i]));
+        out.sort(RoutePlanner.ORDEN);
+        return out;
+    }
+
+    //Variante de perfil: llegadas al destino Pareto-óptimas en (ETA, hops, minResidual) sin límite de k
+    public List<CandidateRoute> paretoLlegadas(Pedido p, String origen) {
+        if (p == null || origen == null || origen.isEmpty()) return Collections.emptyList();
+        LabelPool pool = LabelPool.delHilo();
+        List<CandidateRoute> out = new ArrayList<>();
+        int[] llegadas = escanear(pool, p, origen, Integer.MAX_VALUE, out);
+        if (llegadas == null) return out;
+
+        List<Integer> frente = new ArrayList<>();
+        for (int l : llegadas) {
+            boolean dominada = false;
+            for (int b : llegadas) {
+                if (b == l) continue;
+                if (pool.t[b] <= pool.t[l] && pool.hops[b] <= pool.hops[l] && pool.minResidual[b] >= pool.minResidual[l]
+                        && (pool.t[b] < pool.t[l] || pool.hops[b] < pool.hops[l] || pool.minResidual[b] > pool.minResidual[l])) {
+                    dominada = true;
+                    break;
+                }
+            }
+            if (!dominada) frente.add(l);
+        }
+        for (int l : frente) out.add(candidata(pool, p, l));
+        out.sort(RoutePlanner.ORDEN);
+        return out;
+    }
+
+    private CandidateRoute candidata(LabelPool pool, Pedido p, int l) {
+        DepartureIndex idx = tabla().idx;
+        List<String> path = RoutePlanner.reconstruirCamino(pool, l, idx);
+        int depMin = pool.t[raiz(pool, l)];
+        if (!path.isEmpty()) depMin = g.arcsById.get(path.get(0)).getFrom().getMinuto();
+        int maxAsignable = (pool.minResidual[l] == Integer.MAX_VALUE) ? 0 : pool.minResidual[l];
+        return new CandidateRoute(p.getIdPedido(), path, depMin, pool.t[l], 0, pool.hops[l], maxAsignable);
+    }
+
+    private static int raiz(LabelPool pool, int l) {
+        while (pool.parent[l] != LabelPool.NINGUNO) l = pool.parent[l];
+        return l;
+    }
+
+    //Recorre las conexiones desde la hora de listo del pedido hasta su llegada máxima y devuelve las
+    //etiquetas que llegan al destino ordenadas por (t, hops, -minResidual), o null si out ya tiene la
+    //respuesta. Con k llegadas se corta en la primera conexión que sale después de la k-ésima: todo lo
+    //que venga después llega más tarde.
+    private int[] escanear(LabelPool pool, Pedido p, String origen, int k, List<CandidateRoute> out) {
+        Tabla tb = tabla();
+        DepartureIndex idx = tb.idx;
+        int o = idx.airportIndex(origen);
+        int dst = idx.airportIndex(p.getDestino());
+        if (o < 0) return null;
+
+        LocalDateTime earliest = p.getFecha();
+        int latestArr = sla.latestArrival(MinutoSim.piso(earliest), aps.obtener(origen), aps.obtener(p.getDestino()));
+        int startEvent = idx.ceilingEvent(o, MinutoSim.techo(earliest));
+        if (startEvent < 0) return null;
+        int startT = idx.eventMinute(o, startEvent);
+        int minLayover = RoutePlanner.MIN_LAYOVER_MIN;
+        int maxEscalas = RoutePlanner.MAX_ESCALAS;
+        int q = porCantidad ? Math.max(1, p.getCantidad()) : 1;
+        TravelTimeBounds cotas = tb.cotas;
+
+        int raiz = pool.nueva(o, startEvent, startT, 0, Integer.MAX_VALUE);
+        if (o == dst) {
+            if (startT <= latestArr) out.add(new CandidateRoute(p.getIdPedido(), new ArrayList<>(), startT, startT, 0, 0, 0));
+            return null;
+        }
+        if (dst < 0 || !cotas.alcanza(o, dst, startT + minLayover, maxEscalas, latestArr)) return new int[0];
+        Bolsas bolsas = BOLSAS.get();
+        bolsas.preparar(idx.airportCount());
+        bolsas.agregar(o, raiz);
+
+        int[] llegadas = new int[16];
+        int nLlegadas = 0;
+
+        for (int c = tb.primera(startT + minLayover); c < tb.dep.length; c++) {
+            int dep = tb.dep[c];
+            if (dep > latestArr) break;
+            if (nLlegadas >= k && dep > pool.t[llegadas[k - 1]]) break;
+            int a = tb.from[c];
+            int nA = bolsas.n[a];
+            if (nA == 0) continue;
+            int b = tb.to[c];
+            int arr = tb.arr[c];
+            if (tb.toEvent[c] < 0 || arr > latestArr) continue;
+            //Vuelos que quedan después de este para llegar desde b (INALCANZABLE si no se llega con ninguno)
+            int faltan = (b == dst) ? 0 : cotas.minSaltos(b, dst);
+            if (faltan == TravelTimeBounds.INALCANZABLE) continue;
+
+            int residual = -1; //se consulta solo si alguna etiqueta puede tomar el vuelo
+            int[] bolsa = bolsas.bolsa[a];
+            for (int i = 0; i < nA; i++) {
+                int l = bolsa[i];
+                if (pool.t[l] + minLayover > dep) continue;  //todavía no llegó
+                int h = pool.hops[l];
+                if (h + 1 + faltan > maxEscalas) continue;
+                if (b != dst && !cotas.alcanza(b, dst, arr + minLayover, maxEscalas - h - 1, latestArr)) continue;
+                if (residual < 0) {
+                    residual = capBook.residual(idx.depArc(a, tb.slot[c]));
+                    if (residual < q) break;
+                }
+                int resEspera = idx.minResidualEspera(a, pool.event[l], tb.depEvent[c], capBook);
+                if (resEspera < q) continue;
+
+                int nx = pool.nueva(b, tb.toEvent[c], arr, h + 1, Math.min(pool.minResidual[l], Math.min(resEspera, residual)));
+                pool.parent[nx] = l;
+                pool.depEvent[nx] = tb.depEvent[c];
+                pool.dep[nx] = tb.slot[c];
+
+                if (b == dst) {
+                    if (!dominadaEnDestino(pool, llegadas, nLlegadas, nx)) {
+                        if (nLlegadas == llegadas.length) llegadas = Arrays.copyOf(llegadas, nLlegadas * 2);
+                        //Inserción ordenada: las llegadas salen casi en orden de t
+                        int pos = nLlegadas++;
+                        while (pos > 0 && antes(pool, nx, llegadas[pos - 1])) {
+                            llegadas[pos] = llegadas[pos - 1];
+                            pos--;
+                        }
+                        llegadas[pos] = nx;
+                    }
+                } else {
+                    agregarSiNoDominada(idx, pool, bolsas, b, nx);
+                }
+            }
+        }
+        return Arrays.copyOf(llegadas, nLlegadas);
+    }
+
+    //Orden de salida de la cola de RoutePlanner: t ↑, hops ↑, minResidual ↓
+    private static boolean antes(LabelPool pool, int l, int b) {
+        if (pool.t[l] != pool.t[b]) return pool.t[l] < pool.t[b];
+        if (pool.hops[l] != pool.hops[b]) return pool.hops[l] < pool.hops[b];
+        return pool.minResidual[l] > pool.minResidual[b];
+    }
+
+    //En el destino no se espera: solo compiten llegadas del mismo minuto (como en el nodo de RoutePlanner),
+    //con a lo sumo MAX_LABELS_POR_NODO iguales
+    private static boolean dominadaEnDestino(LabelPool pool, int[] llegadas, int n, int l) {
+        int iguales = 0;
+        for (int i = 0; i < n; i++) {
+            int b = llegadas[i];
+            if (pool.t[b] != pool.t[l]) continue;
+            if (domina(pool, b, pool.minResidual[b], l)) return true;
+            if (igual(pool, b, pool.minResidual[b], l) && ++iguales >= RoutePlanner.MAX_LABELS_POR_NODO) return true;
+        }
+        return false;
+    }
+
+    //Dominancia en la bolsa del aeropuerto: la etiqueta que llegó antes vale con el residual que le queda
+    //después de esperar en el almacén hasta el evento de la otra. Las dominadas por la nueva se quitan
+    //(todavía no se usaron: llegan después de la nueva, que llega después de la conexión actual).
+    //Como en los nodos de RoutePlanner, de las etiquetas iguales se guardan a lo sumo MAX_LABELS_POR_NODO.
+    private void agregarSiNoDominada(DepartureIndex idx, LabelPool pool, Bolsas bolsas, int a, int l) {
+        int[] bolsa = bolsas.bolsa[a];
+        int n = bolsas.n[a];
+        int iguales = 0;
+        for (int i = 0; i < n; i++) {
+            int b = bolsa[i];
+            if (pool.t[b] > pool.t[l] || pool.hops[b] > pool.hops[l]) continue;
+            int resB = efectivo(idx, pool, a, b, l);
+            if (domina(pool, b, resB, l)) return;
+            if (igual(pool, b, resB, l) && ++iguales >= RoutePlanner.MAX_LABELS_POR_NODO) return;
+        }
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            int b = bolsa[i];
+            boolean quitar = pool.t[l] <= pool.t[b] && pool.hops[l] <= pool.hops[b]
+                    && domina(pool, l, efectivo(idx, pool, a, l, b), b);
+            if (!quitar) bolsa[m++] = b;
+        }
+        bolsas.n[a] = m;
+        bolsas.agregar(a, l);
+    }
+
+    //Residual de b al esperar hasta el evento de l
+    private int efectivo(DepartureIndex idx, LabelPool pool, int a, int b, int l) {
+        int r = pool.minResidual[b];
+        if (pool.event[l] <= pool.event[b]) return r;
+        return Math.min(r, idx.minResidualEspera(a, pool.event[b], pool.event[l], capBook));
+    }
+
+    private static boolean igual(LabelPool pool, int b, int resB, int l) {
+        return pool.t[b] == pool.t[l] && pool.hops[b] == pool.hops[l] && resB == pool.minResidual[l];
+    }
+
+    private static boolean domina(LabelPool pool, int b, int resB, int l) {
+        return pool.t[b] <= pool.t[l] && pool.hops[b] <= pool.hops[l] && resB >= pool.minResidual[l]
+                && (pool.t[b] < pool.t[l] || pool.hops[b] < pool.hops[l] || resB > pool.minResidual[l]);
+    }
+}
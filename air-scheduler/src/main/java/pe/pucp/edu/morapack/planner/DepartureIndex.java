@@ -0,0 +1,183 @@
+package pe.pucp.edu.morapack.planner;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static pe.pucp.edu.morapack.planner.SimulationConfig.SIM_DATE;
+
+//Índice de salidas por aeropuerto sobre un TEGraph, con tiempos en minutos desde SIM_DATE (MinutoSim).
+//Permite saltar desde una llegada directamente a cada vuelo posterior sin recorrer la cadena
+//de ESPERA arco por arco: la capacidad de las esperas entre ambos eventos se consulta por rango.
+//Se arma sobre una foto del grafo; si el grafo avanza (advanceTo) hay que volver a construirlo.
+public final class DepartureIndex {
+    private final LocalDate base;
+    private final String[] codigos;
+    private final Map<String, Integer> idxAeropuerto = new HashMap<>();
+
+    //Eventos del aeropuerto a (eventsByAirport) y la espera del evento i al i+1
+    private final int[][] eventMin;
+    private final TEGraph.Node[][] eventNode;
+    private final TEGraph.Arc[][] espera;
+    //huecos[a][i] = esperas que faltan entre los eventos 0 e i (cadena cortada tras evictBefore)
+    private final int[][] huecos;
+    //Numeración densa de los nodos: el evento i del aeropuerto a es el nodo primerNodo[a] + i
+    private final int[] primerNodo;
+
+    //Salidas del aeropuerto a ordenadas por minuto, con el evento del que parten
+    private final int[][] depMin;
+    private final int[][] depEvent;
+    private final TEGraph.Arc[][] depArc;
+
+    //Para cada salida: aeropuerto y evento de llegada
+    private final int[][] arrAirport;
+    private final int[][] arrEvent;
+
+    public DepartureIndex(TEGraph g) {
+        this.base = SIM_DATE;
+        codigos = g.eventsByAirport.keySet().toArray(new String[0]);
+        Arrays.sort(codigos);
+        for (int a = 0; a < codigos.length; a++) idxAeropuerto.put(codigos[a], a);
+
+        int A = codigos.length;
+        eventMin = new int[A][];
+        eventNode = new TEGraph.Node[A][];
+        espera = new TEGraph.Arc[A][];
+        huecos = new int[A][];
+        depMin = new int[A][];
+        depEvent = new int[A][];
+        depArc = new TEGraph.Arc[A][];
+        arrAirport = new int[A][];
+        arrEvent = new int[A][];
+        primerNodo = new int[A + 1];
+
+        for (int a = 0; a < A; a++) {
+            TreeSet<LocalDateTime> eventos = g.eventsByAirport.get(codigos[a]);
+            int n = eventos.size();
+            eventMin[a] = new int[n];
+            eventNode[a] = new TEGraph.Node[n];
+            espera[a] = new TEGraph.Arc[Math.max(0, n - 1)];
+
+            List<TEGraph.Arc> salidas = new ArrayList<>();
+            List<Integer> salidasEvento = new ArrayList<>();
+            int i = 0;
+            for (LocalDateTime t : eventos) {
+                eventMin[a][i] = MinutoSim.piso(base, t);
+                eventNode[a][i] = g.nodesById.get(codigos[a] + "@" + t);
+                for (TEGraph.Arc arc : g.getOutgoing(codigos[a] + "@" + t)) {
+                    if (arc.getArcType() == ArcType.ESPERA) {
+                        if (i + 1 < n) espera[a][i] = arc;
+                    } else {
+                        salidas.add(arc);
+                        salidasEvento.add(i);
+                    }
+                }
+                i++;
+            }
+
+            primerNodo[a + 1] = primerNodo[a] + n;
+            huecos[a] = new int[n];
+            for (int k = 1; k < n; k++) huecos[a][k] = huecos[a][k - 1] + (espera[a][k - 1] == null ? 1 : 0);
+
+            //Ya vienen ordenadas por evento (y los eventos por minuto)
+            int m = salidas.size();
+            depMin[a] = new int[m];
+            depEvent[a] = new int[m];
+            depArc[a] = salidas.toArray(new TEGraph.Arc[0]);
+            for (int j = 0; j < m; j++) {
+                depEvent[a][j] = salidasEvento.get(j);
+                depMin[a][j] = eventMin[a][depEvent[a][j]];
+            }
+        }
+
+        //Llegadas: se resuelven cuando todos los eventos ya tienen minuto
+        for (int a = 0; a < A; a++) {
+            int m = depArc[a].length;
+            arrAirport[a] = new int[m];
+            arrEvent[a] = new int[m];
+            for (int j = 0; j < m; j++) {
+                TEGraph.Node to = depArc[a][j].getTo();
+                int b = airportIndex(to.getAeropuerto().getCodigo());
+                arrAirport[a][j] = b;
+                arrEvent[a][j] = (b < 0) ? -1 : Arrays.binarySearch(eventMin[b], to.getMinuto());
+            }
+        }
+    }
+
+    // ---- Aeropuertos ----
+    public int airportIndex(String codigo) {
+        Integer idx = idxAeropuerto.get(codigo);
+        return idx == null ? -1 : idx;
+    }
+
+    public String airportCode(int a) { return codigos[a]; }
+
+    public int airportCount() { return codigos.length; }
+
+    // ---- Eventos ----
+    public int eventCount(int a) { return eventMin[a].length; }
+    public int eventMinute(int a, int i) { return eventMin[a][i]; }
+    public TEGraph.Node eventNode(int a, int i) { return eventNode[a][i]; }
+    public TEGraph.Arc espera(int a, int i) { return espera[a][i]; }
+
+    //Índice denso del nodo (aeropuerto a, evento i), en [0, nodeCount())
+    public int nodeIndex(int a, int i) { return primerNodo[a] + i; }
+    public int nodeCount() { return primerNodo[primerNodo.length - 1]; }
+
+    //Primer evento con minuto >= minute, o -1
+    public int ceilingEvent(int a, int minute) {
+        int i = lowerBound(eventMin[a], minute);
+        return i < eventMin[a].length ? i : -1;
+    }
+
+    // ---- Salidas ----
+    public int departureCount(int a) { return depMin[a].length; }
+    public int depMinute(int a, int j) { return depMin[a][j]; }
+    public int depEvent(int a, int j) { return depEvent[a][j]; }
+    public TEGraph.Arc depArc(int a, int j) { return depArc[a][j]; }
+    public int arrAirport(int a, int j) { return arrAirport[a][j]; }
+    public int arrEvent(int a, int j) { return arrEvent[a][j]; }
+
+    //Primera salida con minuto >= minute
+    public int firstDeparture(int a, int minute) {
+        return lowerBound(depMin[a], minute);
+    }
+
+    //Menor residual de las esperas entre el evento from y el evento to del aeropuerto (to > from).
+    //Integer.MAX_VALUE si no hay que esperar; 0 si falta algún arco de la cadena.
+    //Con WarehouseBook es una sola consulta de máximo por rango; si no, se recorren las esperas.
+    public int minResidualEspera(int a, int from, int to, CapacityBook capBook) {
+        if (to <= from) return Integer.MAX_VALUE;
+        if (huecos[a][to] != huecos[a][from]) return 0;
+        int porRango = capBook.residualEspera(codigos[a], eventMin[a][from], eventMin[a][to]);
+        if (porRango >= 0) return porRango;
+
+        int min = Integer.MAX_VALUE;
+        TEGraph.Arc[] cadena = espera[a];
+        for (int i = from; i < to; i++) {
+            TEGraph.Arc arc = cadena[i];
+            if (arc == null) return 0;
+            int r = capBook.residual(arc);
+            if (r < min) {
+                min = r;
+                if (min <= 0) return 0;
+            }
+        }
+        return min;
+    }
+
+    private static int lowerBound(int[] arr, int key) {
+        int lo = 0, hi = arr.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (arr[mid] < key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // ---- Tiempo ----
+    public LocalDateTime toDateTime(int minute) {
+        return MinutoSim.aFecha(base, minute);
+    }
+}
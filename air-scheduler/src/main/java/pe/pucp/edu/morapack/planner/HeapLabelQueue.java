@@ -0,0 +1,69 @@
+package pe.pucp.edu.morapack.planner;
+
+import java.util.Arrays;
+
+//Heap binario sobre índices de etiquetas: O(log n) por operación y sin supuestos sobre la clave
+final class HeapLabelQueue implements LabelQueue {
+    private final LabelPool pool;
+    private int[] heap = new int[256];
+    private int heapSize;
+
+    HeapLabelQueue(LabelPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void limpiar() {
+        heapSize = 0;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return heapSize == 0;
+    }
+
+    @Override
+    public void push(int l) {
+        if (heapSize == heap.length) heap = Arrays.copyOf(heap, heapSize * 2);
+        int k = heapSize++;
+        while (k > 0) {
+            int padre = (k - 1) >>> 1;
+            int e = heap[padre];
+            if (!antes(l, e)) break;
+            heap[k] = e;
+            k = padre;
+        }
+        heap[k] = l;
+    }
+
+    @Override
+    public int poll() {
+        int res = heap[0];
+        int n = --heapSize;
+        if (n > 0) {
+            int x = heap[n];
+            int k = 0;
+            int mitad = n >>> 1;
+            while (k < mitad) {
+                int hijo = 2 * k + 1;
+                int c = heap[hijo];
+                int der = hijo + 1;
+                if (der < n && antes(heap[der], c)) c = heap[hijo = der];
+                if (!antes(c, x)) break;
+                heap[k] = c;
+                k = hijo;
+            }
+            heap[k] = x;
+        }
+        return res;
+    }
+
+    //Orden de la cola: clave, luego menos escalas, luego más residual
+    private boolean antes(int a, int b) {
+        int[] clave = pool.clave;
+        if (clave[a] != clave[b]) return clave[a] < clave[b];
+        int[] hops = pool.hops;
+        if (hops[a] != hops[b]) return hops[a] < hops[b];
+        return pool.minResidual[a] > pool.minResidual[b];
+    }
+}
@@ -0,0 +1,201 @@
+package pe.pucp.edu.morapack.planner;
+
+import java.util.Arrays;
+
+//Etiquetas de la búsqueda de rutas como estructura de arreglos: una etiqueta es un índice y sus campos
+//viven en arreglos de int paralelos, con un puntero al padre en lugar de una copia del camino.
+//El camino se arma recién cuando una etiqueta llega al destino (RoutePlanner.reconstruirCamino).
+//Cada hilo reutiliza su pool entre pedidos (delHilo()) y reset() solo limpia lo que se tocó,
+//así que una búsqueda casi no crea objetos. También trae la cola de prioridad y los frentes
+//no dominados por nodo, ambos sobre índices de etiquetas.
+final class LabelPool {
+    static final int NINGUNO = -1;
+
+    private static final ThreadLocal<LabelPool> POR_HILO = ThreadLocal.withInitial(LabelPool::new);
+
+    //Campos de la etiqueta i. En la búsqueda TE: event es el evento del aeropuerto, depEvent el evento
+    //desde el que se tomó el vuelo y dep la salida (índice en DepartureIndex del aeropuerto del padre).
+    //En la búsqueda TD: event es el día del vuelo tomado y dep el índice del vuelo en TDGraph.
+    //clave es el orden en la cola: t, salvo que la búsqueda ponga una cota de llegada al destino.
+    int[] airport = new int[256];
+    int[] event = new int[256];
+    int[] t = new int[256];
+    int[] clave = new int[256];
+    int[] hops = new int[256];
+    int[] minResidual = new int[256];
+    int[] parent = new int[256];
+    int[] depEvent = new int[256];
+    int[] dep = new int[256];
+    private int size;
+
+    //Cola por (clave, hops, -minResidual): los empates en clave no dependen de qué más hay en la cola
+    private final HeapLabelQueue heap = new HeapLabelQueue(this);
+    private final BucketLabelQueue porMinuto = new BucketLabelQueue(this);
+    private LabelQueue cola = heap;
+
+    //Frente no dominado por nodo: mejor residual y empates por (nodo, hops).
+    //En la búsqueda TD el nodo es el aeropuerto (la espera es libre)
+    private static final int VACIO = Integer.MIN_VALUE;
+    private int casilleros;
+    private int porCasillero;
+    private int[] mejorRes = new int[0];
+    private int[] empates = new int[0];
+    private int[] nodosTocados = new int[64];
+    private int nTocados;
+
+    private int[] camino = new int[16]; //cadena de padres al reconstruir
+
+    static LabelPool delHilo() {
+        LabelPool p = POR_HILO.get();
+        p.reset();
+        return p;
+    }
+
+    void reset() {
+        size = 0;
+        heap.limpiar();
+        porMinuto.limpiar();
+        cola = heap;
+        for (int i = 0; i < nTocados; i++) {
+            int base = nodosTocados[i] * casilleros;
+            Arrays.fill(mejorRes, base, base + casilleros, VACIO);
+        }
+        nTocados = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int nueva(int airport, int event, int t, int hops, int minResidual) {
+        if (size == this.airport.length) crecer();
+        int i = size++;
+        this.airport[i] = airport;
+        this.event[i] = event;
+        this.t[i] = t;
+        this.clave[i] = t;
+        this.hops[i] = hops;
+        this.minResidual[i] = minResidual;
+        this.parent[i] = NINGUNO;
+        this.depEvent[i] = NINGUNO;
+        this.dep[i] = NINGUNO;
+        return i;
+    }
+
+    private void crecer() {
+        int n = airport.length * 2;
+        airport = Arrays.copyOf(airport, n);
+        event = Arrays.copyOf(event, n);
+        t = Arrays.copyOf(t, n);
+        clave = Arrays.copyOf(clave, n);
+        hops = Arrays.copyOf(hops, n);
+        minResidual = Arrays.copyOf(minResidual, n);
+        parent = Arrays.copyOf(parent, n);
+        depEvent = Arrays.copyOf(depEvent, n);
+        dep = Arrays.copyOf(dep, n);
+    }
+
+    //Etiquetas desde la raíz hasta l (sin la raíz), en orden de viaje; devuelve cuántas hay
+    int cadena(int l) {
+        int n = 0;
+        for (int x = l; parent[x] != NINGUNO; x = parent[x]) {
+            if (n == camino.length) camino = Arrays.copyOf(camino, n * 2);
+            camino[n++] = x;
+        }
+        for (int i = 0, j = n - 1; i < j; i++, j--) {
+            int tmp = camino[i];
+            camino[i] = camino[j];
+            camino[j] = tmp;
+        }
+        return n;
+    }
+
+    int tramo(int i) {
+        return camino[i];
+    }
+
+    // ---- Cola por clave ----
+    //Heap binario (cualquier búsqueda) o casilleros por minuto (búsquedas monótonas en [desde, hasta])
+    LabelQueue usarHeap() {
+        cola = heap;
+        return cola;
+    }
+
+    LabelQueue usarCasilleros(int desde, int hasta, int maxHops) {
+        porMinuto.preparar(desde, hasta, maxHops);
+        cola = porMinuto;
+        return cola;
+    }
+
+    boolean isEmpty() {
+        return cola.isEmpty();
+    }
+
+    void push(int l) {
+        cola.push(l);
+    }
+
+    int poll() {
+        return cola.poll();
+    }
+
+    // ---- No dominadas por nodo ----
+    //Todas las etiquetas de un nodo tienen el mismo t (el minuto del evento), así que la dominancia es
+    //solo en (hops, minResidual). Por nodo hay un casillero por cantidad de escalas con el mejor residual
+    //visto y cuántas etiquetas empatan con él: el frente de Pareto tiene a lo sumo un casillero por hops,
+    //y agregar o consultar cuesta O(maxHops) sin importar cuántas etiquetas se permitan por nodo.
+    void prepararNodos(int nodos, int maxHops, int porCasillero) {
+        int casilleros = maxHops + 1;
+        if (mejorRes.length < nodos * casilleros || this.casilleros != casilleros) {
+            mejorRes = new int[nodos * casilleros];
+            empates = new int[nodos * casilleros];
+            Arrays.fill(mejorRes, VACIO);
+            nTocados = 0;
+        }
+        this.casilleros = casilleros;
+        this.porCasillero = porCasillero;
+    }
+
+    //Consulta sin registrar: ¿alguna etiqueta del nodo domina a (hops, minResidual), o ya hay porCasillero
+    //iguales a ella?
+    boolean dominada(int nodo, int hops, int minResidual) {
+        int base = nodo * casilleros;
+        for (int h = 0; h < hops; h++) {
+            if (mejorRes[base + h] >= minResidual) return true;
+        }
+        int c = base + hops;
+        return mejorRes[c] > minResidual || (mejorRes[c] == minResidual && empates[c] >= porCasillero);
+    }
+
+    //Devuelve false si alguna etiqueta del nodo domina a l (o ya hay porCasillero iguales a ella);
+    //si no la registra y vacía los casilleros de más escalas que ahora quedan dominados
+    boolean agregarSiNoDominada(int nodo, int l) {
+        int base = nodo * casilleros;
+        int hl = hops[l], rl = minResidual[l];
+
+        for (int h = 0; h < hl; h++) {
+            if (mejorRes[base + h] >= rl) return false;
+        }
+        int c = base + hl;
+        int r = mejorRes[c];
+        if (r > rl) return false;
+        if (r == rl) {
+            if (empates[c] >= porCasillero) return false;
+            empates[c]++;
+            return true;
+        }
+
+        boolean nuevo = true;
+        for (int h = 0; h < casilleros && nuevo; h++) nuevo = mejorRes[base + h] == VACIO;
+        if (nuevo) {
+            if (nTocados == nodosTocados.length) nodosTocados = Arrays.copyOf(nodosTocados, nTocados * 2);
+            nodosTocados[nTocados++] = nodo;
+        }
+        mejorRes[c] = rl;
+        empates[c] = 1;
+        for (int h = hl + 1; h < casilleros; h++) {
+            if (mejorRes[base + h] <= rl) mejorRes[base + h] = VACIO;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,16 @@
+package pe.pucp.edu.morapack.planner;
+
+//Cola de etiquetas (índices del LabelPool) para la expansión por llegada más temprana.
+//El orden es (clave, hops, -minResidual): primero la de menor clave (su t, o la llegada más temprana
+//posible al destino si la búsqueda usa un perfil), luego la de menos escalas y luego la de más residual. Cada LabelPool trae una de cada tipo y las reutiliza entre búsquedas.
+interface LabelQueue {
+
+    //Vacía la cola (al empezar otra búsqueda)
+    void limpiar();
+
+    void push(int l);
+
+    int poll();
+
+    boolean isEmpty();
+}
@@ -9,24 +9,20 @@ import java.util.TreeSet;
 
 public class Main {
     public static void main(String[] args) {
-        //Aeropuertos
-        AeropuertosMap aeropuertosMap = new AeropuertosMap();
-        try (Scanner sc = ArchivoUtils.getScannerFromResource("c.1inf54.25.2.Aeropuerto.husos.v1.20250818__estudiantes.txt")) {
-            if (sc != null) {
-                aeropuertosMap.leerDatos(sc);
-            } else return;
-        }
+        //Aeropuertos y vuelos: se leen del snapshot binario si sigue vigente (-Dmorapack.dataDir), si no se parsean los .txt
+        NetworkSnapshot red = NetworkSnapshot.cargarOConstruir(
+                NetworkSnapshot.archivoPorDefecto(),
+                "c.1inf54.25.2.Aeropuerto.husos.v1.20250818__estudiantes.txt",
+                "c.1inf54.25.2.planes_vuelo.v4.20250818.txt");
+        if (red == null) return;
+
+        AeropuertosMap aeropuertosMap = red.getAeropuertos();
         aeropuertosMap.imprimirAeropuertos();
 
         System.out.println("holi");
 
         //Vuelos
-        VuelosMap mapa = new VuelosMap(aeropuertosMap);
-        try (Scanner sc = ArchivoUtils.getScannerFromResource("c.1inf54.25.2.planes_vuelo.v4.20250818.txt")) {
-            if (sc != null) {
-                mapa.leerDatos(sc);
-            } else return;
-        }
+        VuelosMap mapa = red.getVuelos();
         mapa.imprimirVuelos();
 
 
@@ -50,7 +46,8 @@ public class Main {
         }
         //pedidos.mostrar();
 
-        TEGraph G = new TEGraph(aeropuertosMap, mapa, 3);
+        //Armado del grafo en paralelo por aeropuerto (opcional, -Dmorapack.grafoParalelo=true; mismo grafo que el serial)
+        TEGraph G = new TEGraph(aeropuertosMap, mapa, 3, Boolean.getBoolean("morapack.grafoParalelo"));
 
         G.printSomeSamples(3, 2);
 
@@ -61,8 +58,44 @@ public class Main {
         //*****
 
         SLAService sla = new SLAService();
-        CapacityBook capBook = new CapacityBook(); // usa tu ctor real
-        RoutePlanner planner = new RoutePlanner(G, aeropuertosMap, sla, capBook);
+        //Modo dependiente del tiempo (opcional, -Dmorapack.modoTD=true): las búsquedas van sobre el TDGraph y las
+        //reservas de vuelo se confirman en él (TDCapacityBook); el TEGraph sigue resolviendo los arcos al confirmar
+        TDGraph td = Boolean.getBoolean("morapack.modoTD") ? new TDGraph(aeropuertosMap, mapa) : null;
+        CapacityBook capBook = (td != null) ? new TDCapacityBook(td, new WarehouseBook(G)) // almacenes con segment tree por aeropuerto
+                : new CapacityBook(new WarehouseBook(G));
+
+        //Journal de reservas (opcional, -Dmorapack.journal=<dir>): recupera el plan ya confirmado y registra los nuevos
+        CapacityJournal journal = null;
+        String dirJournal = System.getProperty("morapack.journal");
+        if (dirJournal != null) {
+            try {
+                journal = CapacityJournal.abrir(java.nio.file.Paths.get(dirJournal), G, capBook);
+            } catch (java.io.IOException e) {
+                System.out.println("No se pudo abrir el journal de capacidad: " + e.getMessage());
+            }
+        }
+
+        //Plan en PostgreSQL (opcional, -Dmorapack.db.url=jdbc:postgresql://...): se escribe en segundo plano.
+        //La ocupación guardada solo se recarga si no hay journal (si lo hay, ya la recuperó él).
+        PlanStore planStore = null;
+        String urlBD = System.getProperty("morapack.db.url");
+        if (urlBD != null) {
+            try {
+                planStore = new PlanStore(urlBD, System.getProperty("morapack.db.user"), System.getProperty("morapack.db.password")).iniciar();
+                if (journal == null) System.out.println("Arcos recuperados de la BD: " + planStore.cargar(G, capBook));
+                planStore.conectar(capBook);
+            } catch (java.sql.SQLException e) {
+                System.out.println("No se pudo abrir la BD del plan: " + e.getMessage());
+                planStore = null;
+            }
+        }
+        RoutePlanner planner = (td != null) ? new RoutePlanner(td, aeropuertosMap, sla)
+                : new RoutePlanner(G, aeropuertosMap, sla, capBook);
+        if (Boolean.getBoolean("morapack.paralelo")) planner.setParalelo(java.util.concurrent.ForkJoinPool.commonPool()); //orígenes en paralelo
+        if (Boolean.getBoolean("morapack.porCantidad")) planner.setPorCantidad(true); //solo rutas que llevan el pedido completo
+        planner.setDiversidad(Integer.getInteger("morapack.diversidad", 0)); //máx. candidatas por vuelo (0 = top-k por ETA)
+        int tamCache = Integer.getInteger("morapack.cache", 0); //entradas de la caché de candidatas (0 = sin caché)
+        if (tamCache > 0) planner.setCache(new CandidateCache(tamCache));
 
         //String ORIGEN = "LOWW";
         //var ORIGENES = java.util.List.of("SKBO","SEQM","SVMI","SBBR","SPIM","SLLP","SCEL","SABE","SGAS","SUAA","LATI","EDDI","LOWW","EBCI","UMMS","LBSF","LKPR","LDZA","EKCH","EHAM","VIDP","OSDI","OERK","OMDB","OAKB","OOMS","OYSN","OPKC","UBBB","OJAI"); // <- Lima, Berlin, Praga (por ahora)
@@ -77,12 +110,11 @@ public class Main {
         java.util.Map<Integer, Pedido> pedidosMap = new java.util.HashMap<>();
         for (Pedido p : listaPedidos) pedidosMap.put(p.getIdPedido(), p);
 
-        java.util.Map<Integer, java.util.List<CandidateRoute>> candPorPedido = new java.util.HashMap<>();
-        for (Pedido p : listaPedidos) {
-            var cand = planner.generarCandidatasMultiOrigen(p, ORIGENES, k);
-            // nunca dejes null
-            candPorPedido.put(p.getIdPedido(), (cand == null) ? java.util.List.of() : cand);
-        }
+        //Todos los pedidos (en paralelo con -Dmorapack.paralelo=true, cada worker con su propio espacio de búsqueda)
+        java.util.Map<Integer, java.util.List<CandidateRoute>> candPorPedido = planner.generarCandidatasLote(
+                listaPedidos, ORIGENES, k,
+                (hechos, total, ritmo) -> System.out.printf("Candidatas: %d/%d pedidos (%.0f pedidos/s)%n", hechos, total, ritmo));
+        if (planner.getCache() != null) System.out.println(planner.getCache());
 
         int maxPedidos = Math.min(10, listaPedidos.size());
 
@@ -148,11 +180,20 @@ public class Main {
             pedidosMap, // Mapa de pedidos
             candPorPedido // Rutas candidatas por pedido
         );
+        memetico.setPlanStore(planStore);
+
+        //Índice arco -> candidatas: después de confirmar solo se revisan las candidatas que tocan arcos reservados
+        CandidateIndex indiceCandidatas = CandidateIndex.abrir(G, capBook, candPorPedido);
+        memetico.setIndiceCandidatas(indiceCandidatas);
         
         // Ejecutar el algoritmo
         System.out.println("Iniciando búsqueda de solución óptima...");
         memetico.ejecutar();
 
+        CandidateIndex.Reparacion reparacion = indiceCandidatas.reparar(planner, pedidosMap, ORIGENES, k);
+        System.out.println("\nReparación de candidatas tras confirmar: " + reparacion);
+        indiceCandidatas.close();
+
         System.out.println("\n=== OCUPACIÓN DE ALMACENES ===");
 
         //Para imprimir bien las horas:
@@ -164,40 +205,39 @@ public class Main {
             TreeSet<LocalDateTime> eventos = G.eventsByAirport.get(origen);
             if (eventos == null || eventos.size() < 2) continue;
 
-            int capacidad = -1;
+            //Ocupación de todos los tramos de espera de una vez (alineada con los eventos)
+            int capacidad = capBook.getAlmacen().capacidad(origen);
+            int[] ocupaciones = capBook.getAlmacen().ocupacion(origen);
             LocalDateTime prev = null;
+            int seg = 0;
 
             for (LocalDateTime t : eventos){
                 if (prev == null){
                     prev = t;
                     continue;
                 }
-                String fromId = origen + "@" + prev;
-                String toId   = origen + "@" + t;
-                String arcId = fromId + "→" + toId;
-
-                TEGraph.Arc arc = G.arcsById.get(arcId);
-
-                if (capacidad == -1){
-                    capacidad = arc.getCapacity();
-                }
-
-                LocalDateTime dep = arc.getFrom().getTimestampUTC();
-                LocalDateTime arr = arc.getTo().getTimestampUTC();
-                int ocupacion = capBook.used(arcId);
+                int ocupacion = ocupaciones[seg++];
                 String saturacion = obtenerSaturacion(capacidad, ocupacion);
 
-                System.out.printf("(%s - %s)  Ocupación: %d/%d (Estado: %s) %n", dep.format(fmt), arr.format(fmt), ocupacion, capacidad, saturacion);
+                System.out.printf("(%s - %s)  Ocupación: %d/%d (Estado: %s) %n", prev.format(fmt), t.format(fmt), ocupacion, capacidad, saturacion);
 
                 prev = t;
 
             }
 
-            capacidad = -1;
             System.out.println("\n" + "-".repeat(50));
         }
 
 
+        if (planStore != null) planStore.close();
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (java.io.IOException e) {
+                System.out.println("El journal de capacidad no quedó completo: " + e.getMessage());
+            }
+        }
+
         System.out.println("\n=== FIN DEL PROGRAMA ===");
     }
 
@@ -0,0 +1,57 @@
+package pe.pucp.edu.morapack.planner;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import static pe.pucp.edu.morapack.planner.SimulationConfig.SIM_DATE;
+
+//Tiempo de la simulación como int: minutos desde el inicio (00:00 UTC) de SIM_DATE.
+//El planificador compara y ordena solo ints; LocalDateTime queda para los bordes (lectura, impresión, IDs).
+public final class MinutoSim {
+    public static final int MIN_POR_DIA = 24 * 60;
+
+    private MinutoSim() {
+    }
+
+    //Redondea hacia abajo: 10:00:30 -> 10:00
+    public static int piso(LocalDateTime t) {
+        return piso(SIM_DATE, t);
+    }
+
+    public static int piso(LocalDate base, LocalDateTime t) {
+        return (int) Math.floorDiv(Duration.between(base.atStartOfDay(), t).getSeconds(), 60);
+    }
+
+    //Redondea hacia arriba: un pedido listo a las 10:00:30 ya no alcanza una salida de las 10:00
+    public static int techo(LocalDateTime t) {
+        return techo(SIM_DATE, t);
+    }
+
+    public static int techo(LocalDate base, LocalDateTime t) {
+        Duration d = Duration.between(base.atStartOfDay(), t);
+        long s = d.getSeconds() + (d.getNano() > 0 ? 1 : 0);
+        return (int) -Math.floorDiv(-s, 60);
+    }
+
+    public static LocalDateTime aFecha(int minuto) {
+        return aFecha(SIM_DATE, minuto);
+    }
+
+    public static LocalDateTime aFecha(LocalDate base, int minuto) {
+        return base.atStartOfDay().plusMinutes(minuto);
+    }
+
+    public static int minutos(Duration d) {
+        return (int) d.toMinutes();
+    }
+
+    public static int delDia(LocalTime t) {
+        return t.getHour() * 60 + t.getMinute();
+    }
+
+    public static int dia(int minuto) {
+        return Math.floorDiv(minuto, MIN_POR_DIA);
+    }
+}
@@ -0,0 +1,210 @@
+package pe.pucp.edu.morapack.planner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Scanner;
+import java.util.zip.CRC32;
+
+//Snapshot binario de la red cargada (aeropuertos y vuelos).
+//Se escribe una vez y en los siguientes arranques se lee con un MappedByteBuffer en lugar de volver a
+//parsear los .txt. Solo reemplaza ese paso: los objetos se decodifican del buffer (no es zero-copy) y el
+//TEGraph se sigue armando en memoria a partir de ellos. El encabezado guarda el CRC32 de los recursos de
+//origen: si alguno cambió, el snapshot se descarta y se regenera.
+//Por defecto va en <morapack.dataDir>/morapack-red.snapshot (dataDir = ~/.morapack); -Dmorapack.snapshot
+//indica otro archivo.
+//
+//Formato (big-endian):
+//  int MAGIC, int VERSION, long crcAeropuertos, long crcVuelos
+//  int nAeropuertos, [aeropuerto]*
+//  int nVuelos, [vuelo]*            (en el orden del archivo de vuelos, por id)
+public class NetworkSnapshot {
+    public static final int MAGIC = 0x4D504B53; //"MPKS"
+    public static final int VERSION = 2;
+    public static final String ARCHIVO = "morapack-red.snapshot";
+
+    private final AeropuertosMap aeropuertos;
+    private final VuelosMap vuelos;
+
+    private NetworkSnapshot(AeropuertosMap aeropuertos, VuelosMap vuelos) {
+        this.aeropuertos = aeropuertos;
+        this.vuelos = vuelos;
+    }
+
+    public AeropuertosMap getAeropuertos() { return aeropuertos; }
+    public VuelosMap getVuelos() { return vuelos; }
+
+    //Archivo del snapshot según las propiedades del sistema (ver encabezado)
+    public static Path archivoPorDefecto() {
+        String archivo = System.getProperty("morapack.snapshot");
+        if (archivo != null) return Paths.get(archivo);
+        String dir = System.getProperty("morapack.dataDir");
+        Path base = dir != null ? Paths.get(dir) : Paths.get(System.getProperty("user.home"), ".morapack");
+        return base.resolve(ARCHIVO);
+    }
+
+    //Carga el snapshot si está vigente; si no existe o no coincide con los recursos, parsea los .txt
+    //y reescribe el snapshot. Devuelve null si no se pudieron leer los recursos.
+    public static NetworkSnapshot cargarOConstruir(Path archivo, String recAeropuertos, String recVuelos) {
+        long crcAp = checksumResource(recAeropuertos);
+        long crcVu = checksumResource(recVuelos);
+        if (crcAp < 0 || crcVu < 0) return null;
+
+        if (Files.exists(archivo)) {
+            try {
+                NetworkSnapshot snap = load(archivo, crcAp, crcVu);
+                if (snap != null) return snap;
+                System.out.println("Snapshot desactualizado, se regenera: " + archivo);
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Snapshot inválido (" + e.getMessage() + "), se regenera: " + archivo);
+            }
+        }
+
+        AeropuertosMap aeropuertosMap = new AeropuertosMap();
+        try (Scanner sc = ArchivoUtils.getScannerFromResource(recAeropuertos)) {
+            if (sc == null) return null;
+            aeropuertosMap.leerDatos(sc);
+        }
+        VuelosMap vuelosMap = new VuelosMap(aeropuertosMap);
+        try (Scanner sc = ArchivoUtils.getScannerFromResource(recVuelos)) {
+            if (sc == null) return null;
+            vuelosMap.leerDatos(sc);
+        }
+
+        try {
+            write(archivo, aeropuertosMap, vuelosMap, crcAp, crcVu);
+        } catch (IOException e) {
+            System.out.println("No se pudo escribir el snapshot: " + e.getMessage());
+        }
+        return new NetworkSnapshot(aeropuertosMap, vuelosMap);
+    }
+
+    //CRC32 de un recurso del classpath, o -1 si no existe
+    public static long checksumResource(String nombreArchivo) {
+        try (InputStream is = NetworkSnapshot.class.getClassLoader().getResourceAsStream(nombreArchivo)) {
+            if (is == null) {
+                System.out.println("Archivo no encontrado en recursos: " + nombreArchivo);
+                return -1;
+            }
+            CRC32 crc = new CRC32();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = is.read(buf)) > 0) crc.update(buf, 0, n);
+            return crc.getValue();
+        } catch (IOException e) {
+            System.out.println("Error al leer recurso " + nombreArchivo + ": " + e.getMessage());
+            return -1;
+        }
+    }
+
+    // ---- Escritura ----
+    public static void write(Path archivo, AeropuertosMap aeropuertosMap, VuelosMap vuelosMap,
+                             long crcAeropuertos, long crcVuelos) throws IOException {
+        List<Aeropuerto> aps = new ArrayList<>(aeropuertosMap.getAeropuertos().values());
+        List<Vuelo> vs = new ArrayList<>();
+        for (List<Vuelo> l : vuelosMap.getVuelosPorOrigen().values()) vs.addAll(l);
+        //Por id = orden del archivo: al recargar, el VuelosMap queda igual que tras el parseo
+        vs.sort(Comparator.comparingInt(Vuelo::getId));
+
+        //Primero a un buffer en memoria para conocer el tamaño exacto
+        ByteBuffer meta = ByteBuffer.allocate(1 << 20);
+        meta.putInt(MAGIC).putInt(VERSION).putLong(crcAeropuertos).putLong(crcVuelos);
+
+        meta.putInt(aps.size());
+        for (Aeropuerto a : aps) {
+            meta.putInt(a.getId());
+            putString(meta, a.getCodigo());
+            putString(meta, a.getCiudad());
+            putString(meta, a.getPais());
+            putString(meta, a.getContinente());
+            meta.putInt(a.getGMT());
+            meta.putInt(a.getCapacidad());
+            putString(meta, a.getLatitud());
+            putString(meta, a.getLongitud());
+        }
+        meta.putInt(vs.size());
+        for (Vuelo v : vs) {
+            meta.putInt(v.getId());
+            putString(meta, v.getOrigen());
+            putString(meta, v.getDestino());
+            meta.putShort((short) (v.getHoraOrigen().toSecondOfDay() / 60));
+            meta.putShort((short) (v.getHoraDestino().toSecondOfDay() / 60));
+            meta.putInt(v.getCapacidad());
+        }
+        meta.flip();
+
+        int total = meta.remaining();
+        if (archivo.getParent() != null) Files.createDirectories(archivo.getParent());
+        Path tmp = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer out = ch.map(FileChannel.MapMode.READ_WRITE, 0, total);
+            out.put(meta);
+            out.force();
+        }
+        Files.move(tmp, archivo, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // ---- Lectura ----
+    //Devuelve null si la versión o los checksums no coinciden
+    public static NetworkSnapshot load(Path archivo, long crcAeropuertos, long crcVuelos) throws IOException {
+        try (FileChannel ch = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION) return null;
+            if (buf.getLong() != crcAeropuertos || buf.getLong() != crcVuelos) return null;
+
+            AeropuertosMap aeropuertosMap = new AeropuertosMap();
+            int nAp = buf.getInt();
+            for (int i = 0; i < nAp; i++) {
+                Aeropuerto a = new Aeropuerto();
+                a.setId(buf.getInt());
+                a.setCodigo(getString(buf));
+                a.setCiudad(getString(buf));
+                a.setPais(getString(buf));
+                a.setContinente(getString(buf));
+                a.setGMT(buf.getInt());
+                a.setCapacidad(buf.getInt());
+                a.setLatitud(getString(buf));
+                a.setLongitud(getString(buf));
+                aeropuertosMap.agregar(a, a.getCodigo());
+            }
+
+            VuelosMap vuelosMap = new VuelosMap(aeropuertosMap);
+            int nVu = buf.getInt();
+            for (int i = 0; i < nVu; i++) {
+                int id = buf.getInt();
+                String origen = getString(buf);
+                String destino = getString(buf);
+                LocalTime hOrigen = LocalTime.ofSecondOfDay(buf.getShort() * 60L);
+                LocalTime hDestino = LocalTime.ofSecondOfDay(buf.getShort() * 60L);
+                Vuelo v = new Vuelo(id, origen, destino, hOrigen, hDestino, buf.getInt());
+                vuelosMap.agregar(v, origen); //llena las horas GMT
+            }
+            return new NetworkSnapshot(aeropuertosMap, vuelosMap);
+        }
+    }
+
+    private static void putString(ByteBuffer buf, String s) {
+        byte[] b = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+        buf.putShort((short) b.length);
+        buf.put(b);
+    }
+
+    private static String getString(ByteBuffer buf) {
+        byte[] b = new byte[buf.getShort()];
+        buf.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,362 @@
+package pe.pucp.edu.morapack.planner;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sql.DataSource;
+
+//Persistencia en PostgreSQL del plan confirmado (ruta de cada pedido) y de la capacidad usada por arco.
+//El hilo del planificador nunca espera a la BD: cada asignación y cada reserva/liberación (como
+//CapacityBook.Listener) deja el último valor de su clave en un mapa de pendientes y avisa por una cola
+//acotada; un hilo "plan-store" toma las claves avisadas y las escribe en lotes JDBC (addBatch/executeBatch)
+//dentro de una transacción. Por clave solo queda el valor más nuevo (una fila por pedido y una por arco),
+//así que los pendientes no crecen más que la cantidad de arcos y pedidos, y las escrituras de una misma
+//clave salen en orden. Si la cola está llena el aviso se descarta y el escritor recorre todo el mapa.
+//Por arco se guarda la ocupación absoluta, leída del libro después del cambio: reintentar un lote fallido
+//es idempotente y la BD queda igual al libro aunque este recorte en cero al liberar.
+//Al reiniciar, cargar(...) vuelve a aplicar en el CapacityBook la ocupación guardada.
+//Los arcos se identifican por (origen, salida, destino, llegada) y no por ordinal ni minuto relativo,
+//que cambian entre ejecuciones. Usa INSERT ... ON CONFLICT, así que necesita PostgreSQL (o un
+//PostgreSQL embebido para pruebas); se le pasa un DataSource (Agroal en Quarkus) o una URL JDBC.
+public class PlanStore implements CapacityBook.Listener, AutoCloseable {
+
+    public interface Conexiones {
+        Connection abrir() throws SQLException;
+    }
+
+    private static final String DDL_ASIGNACION =
+            "CREATE TABLE IF NOT EXISTS plan_asignacion (" +
+            " pedido_id INTEGER PRIMARY KEY," +
+            " cantidad INTEGER NOT NULL," +
+            " salida TIMESTAMP," +
+            " llegada TIMESTAMP," +
+            " saltos INTEGER NOT NULL," +
+            " arcos TEXT NOT NULL," +
+            " actualizado TIMESTAMP NOT NULL DEFAULT now())";
+
+    private static final String DDL_CAPACIDAD =
+            "CREATE TABLE IF NOT EXISTS capacidad_arco (" +
+            " origen VARCHAR(8) NOT NULL," +
+            " salida TIMESTAMP NOT NULL," +
+            " destino VARCHAR(8) NOT NULL," +
+            " llegada TIMESTAMP NOT NULL," +
+            " usado INTEGER NOT NULL," +
+            " PRIMARY KEY (origen, salida, destino, llegada))";
+
+    private static final String UPSERT_ASIGNACION =
+            "INSERT INTO plan_asignacion (pedido_id, cantidad, salida, llegada, saltos, arcos, actualizado)" +
+            " VALUES (?, ?, ?, ?, ?, ?, now())" +
+            " ON CONFLICT (pedido_id) DO UPDATE SET cantidad = EXCLUDED.cantidad, salida = EXCLUDED.salida," +
+            " llegada = EXCLUDED.llegada, saltos = EXCLUDED.saltos, arcos = EXCLUDED.arcos, actualizado = now()";
+
+    private static final String UPSERT_CAPACIDAD =
+            "INSERT INTO capacidad_arco (origen, salida, destino, llegada, usado) VALUES (?, ?, ?, ?, ?)" +
+            " ON CONFLICT (origen, salida, destino, llegada) DO UPDATE SET usado = EXCLUDED.usado";
+
+    private static final String SEPARADOR_ARCOS = "|";
+    private static final Object DESPERTAR = new Object();
+
+    private static final class Asignacion {
+        final int pedidoId;
+        final int cantidad;
+        final CandidateRoute ruta;
+
+        Asignacion(int pedidoId, int cantidad, CandidateRoute ruta) {
+            this.pedidoId = pedidoId;
+            this.cantidad = cantidad;
+            this.ruta = ruta;
+        }
+    }
+
+    //Ocupación de un arco después del cambio (el Arc se guarda para armar la clave al escribir)
+    private static final class Uso {
+        final TEGraph.Arc arc;
+        final int usado;
+
+        Uso(TEGraph.Arc arc, int usado) {
+            this.arc = arc;
+            this.usado = usado;
+        }
+    }
+
+    private final Conexiones conexiones;
+    private final int tamLote;
+    private final long intervaloMs;
+    private CapacityBook book;
+
+    //Último valor sin escribir por clave (pedidoId o id del arco) y cola acotada de claves avisadas
+    private final ConcurrentHashMap<Integer, Asignacion> pendientesAsignaciones = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Uso> pendientesArcos = new ConcurrentHashMap<>();
+    private final ArrayBlockingQueue<Object> cola;
+    private final AtomicBoolean desbordado = new AtomicBoolean();
+    private final ConcurrentLinkedQueue<CountDownLatch> esperandoFlush = new ConcurrentLinkedQueue<>();
+
+    private final Thread escritor;
+    private volatile boolean cerrando;
+
+    //Estadísticas
+    private final AtomicLong cambios = new AtomicLong();
+    private final AtomicLong desbordes = new AtomicLong();
+    private final AtomicLong filasEscritas = new AtomicLong();
+    private final AtomicLong lotes = new AtomicLong();
+    private final AtomicLong errores = new AtomicLong();
+
+    public PlanStore(DataSource ds) {
+        this(ds::getConnection, 8192, 500, 50);
+    }
+
+    public PlanStore(String url, String usuario, String clave) {
+        this(() -> DriverManager.getConnection(url, usuario, clave), 8192, 500, 50);
+    }
+
+    public PlanStore(Conexiones conexiones, int capacidadCola, int tamLote, long intervaloMs) {
+        this.conexiones = conexiones;
+        this.tamLote = tamLote;
+        this.intervaloMs = intervaloMs;
+        this.cola = new ArrayBlockingQueue<>(capacidadCola);
+        this.escritor = new Thread(this::bucleEscritor, "plan-store");
+        this.escritor.setDaemon(true);
+    }
+
+    //Crea las tablas si no existen y arranca el hilo escritor
+    public PlanStore iniciar() throws SQLException {
+        try (Connection c = conexiones.abrir(); Statement st = c.createStatement()) {
+            st.execute(DDL_ASIGNACION);
+            st.execute(DDL_CAPACIDAD);
+        }
+        escritor.start();
+        return this;
+    }
+
+    //Escucha las reservas y liberaciones del libro
+    public void conectar(CapacityBook book) {
+        this.book = book;
+        book.addListener(this);
+    }
+
+    // ---- Lado del planificador (no bloquea) ----
+    public void registrarAsignacion(int pedidoId, int cantidad, CandidateRoute ruta) {
+        cambios.incrementAndGet();
+        if (pendientesAsignaciones.put(pedidoId, new Asignacion(pedidoId, cantidad, ruta)) == null) avisar(pedidoId);
+    }
+
+    @Override
+    public void reservado(TEGraph.Arc arc, int q, int pedidoId) {
+        cambioArco(arc);
+    }
+
+    @Override
+    public void liberado(TEGraph.Arc arc, int q, int pedidoId) {
+        cambioArco(arc);
+    }
+
+    //La ocupación se lee dentro del compute de la clave, no antes: con varios hilos cambiando el mismo arco
+    //(ConcurrentCapacityBook) un hilo que leyó antes podría dejar pendiente un valor viejo encima del nuevo.
+    //Así el orden de los pendientes es el de las lecturas, y la última lectura ya incluye todos los cambios
+    //terminados antes que ella.
+    private void cambioArco(TEGraph.Arc arc) {
+        cambios.incrementAndGet();
+        boolean[] nueva = new boolean[1];
+        pendientesArcos.compute(arc.getArcId(), (k, viejo) -> {
+            nueva[0] = (viejo == null);
+            return new Uso(arc, book.used(arc));
+        });
+        if (nueva[0]) avisar(arc.getArcId());
+    }
+
+    //Solo se avisa cuando la clave pasa a pendiente; si ya lo estaba, el valor nuevo reemplaza al viejo
+    private void avisar(Object clave) {
+        if (!cola.offer(clave)) {
+            desbordes.incrementAndGet();
+            desbordado.set(true);
+        }
+    }
+
+    //Espera a que no quede nada pendiente (para apagar o en pruebas; sí bloquea)
+    public boolean flush(long timeoutMs) throws InterruptedException {
+        CountDownLatch listo = new CountDownLatch(1);
+        esperandoFlush.add(listo);
+        cola.offer(DESPERTAR);
+        return listo.await(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    // ---- Hilo escritor ----
+    private void bucleEscritor() {
+        List<Object> claves = new ArrayList<>(tamLote);
+        //Lo tomado de los pendientes y todavía no confirmado en la BD (se conserva si el lote falla)
+        Map<Integer, Asignacion> asignaciones = new LinkedHashMap<>();
+        Map<String, Uso> arcos = new LinkedHashMap<>();
+        long espera = intervaloMs;
+        boolean abortar = false;
+
+        while (true) {
+            try {
+                Object primera = cola.poll(espera, TimeUnit.MILLISECONDS);
+                if (primera != null) {
+                    claves.add(primera);
+                    cola.drainTo(claves, tamLote - 1);
+                }
+            } catch (InterruptedException e) {
+                abortar = true; //close() se cansó de esperar
+            }
+            if (desbordado.getAndSet(false)) {
+                claves.addAll(pendientesAsignaciones.keySet());
+                claves.addAll(pendientesArcos.keySet());
+            }
+
+            for (Object k : claves) {
+                if (k instanceof Integer) {
+                    Asignacion a = pendientesAsignaciones.remove(k);
+                    if (a != null) asignaciones.put(a.pedidoId, a);
+                } else if (k instanceof String) {
+                    Uso u = pendientesArcos.remove(k);
+                    if (u != null) arcos.put((String) k, u);
+                }
+            }
+            claves.clear();
+
+            boolean ok = true;
+            if (!asignaciones.isEmpty() || !arcos.isEmpty()) {
+                try {
+                    escribir(asignaciones.values(), arcos.values());
+                } catch (SQLException e) {
+                    //Se conserva lo tomado y se reintenta con espera creciente (los pendientes siguen entrando)
+                    ok = false;
+                    errores.incrementAndGet();
+                    System.out.println("PlanStore: no se pudo escribir el lote (" + e.getMessage() + "), se reintenta");
+                }
+            }
+
+            boolean vacio = ok && cola.isEmpty() && pendientesAsignaciones.isEmpty() && pendientesArcos.isEmpty();
+            if (ok) {
+                asignaciones.clear();
+                arcos.clear();
+                espera = intervaloMs;
+            } else {
+                espera = Math.min(espera * 2, 5_000);
+            }
+            if (vacio) {
+                for (CountDownLatch l; (l = esperandoFlush.poll()) != null; ) l.countDown();
+            }
+
+            if (abortar) {
+                if (!vacio) System.out.println("PlanStore: se cierra con cambios sin escribir");
+                return;
+            }
+            if (cerrando && vacio) return;
+        }
+    }
+
+    private void escribir(Collection<Asignacion> asignaciones, Collection<Uso> arcos) throws SQLException {
+        try (Connection c = conexiones.abrir()) {
+            c.setAutoCommit(false);
+            try {
+                int filas = 0;
+                if (!asignaciones.isEmpty()) {
+                    try (PreparedStatement ps = c.prepareStatement(UPSERT_ASIGNACION)) {
+                        for (Asignacion a : asignaciones) {
+                            ps.setInt(1, a.pedidoId);
+                            ps.setInt(2, a.cantidad);
+                            ps.setObject(3, a.ruta.depUTC);
+                            ps.setObject(4, a.ruta.arrUTC);
+                            ps.setInt(5, a.ruta.hops);
+                            ps.setString(6, String.join(SEPARADOR_ARCOS, a.ruta.arcIds));
+                            ps.addBatch();
+                            if (++filas % tamLote == 0) ps.executeBatch();
+                        }
+                        ps.executeBatch();
+                    }
+                }
+                if (!arcos.isEmpty()) {
+                    try (PreparedStatement ps = c.prepareStatement(UPSERT_CAPACIDAD)) {
+                        for (Uso u : arcos) {
+                            ps.setString(1, u.arc.getFrom().getAeropuerto().getCodigo());
+                            ps.setObject(2, u.arc.getFrom().getTimestampUTC());
+                            ps.setString(3, u.arc.getTo().getAeropuerto().getCodigo());
+                            ps.setObject(4, u.arc.getTo().getTimestampUTC());
+                            ps.setInt(5, u.usado);
+                            ps.addBatch();
+                            if (++filas % tamLote == 0) ps.executeBatch();
+                        }
+                        ps.executeBatch();
+                    }
+                }
+                c.commit();
+                filasEscritas.addAndGet(filas);
+                lotes.incrementAndGet();
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // ---- Recuperación al reiniciar ----
+    //Aplica en el libro la ocupación guardada de los arcos que siguen en el grafo; devuelve cuántos arcos cargó.
+    //Llamar antes de conectar(book) (si no, la carga se volvería a escribir).
+    public int cargar(TEGraph g, CapacityBook book) throws SQLException {
+        int n = 0;
+        try (Connection c = conexiones.abrir();
+             PreparedStatement ps = c.prepareStatement(
+                     "SELECT origen, salida, destino, llegada, usado FROM capacidad_arco WHERE usado > 0");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                String arcId = rs.getString(1) + "@" + rs.getObject(2, LocalDateTime.class)
+                        + "→" + rs.getString(3) + "@" + rs.getObject(4, LocalDateTime.class);
+                TEGraph.Arc a = g.arcsById.get(arcId);
+                if (a == null) continue; //quedó fuera del horizonte
+                book.reserve(a, rs.getInt(5));
+                n++;
+            }
+        }
+        return n;
+    }
+
+    //Rutas confirmadas guardadas (pedidoId -> ids de arcos)
+    public Map<Integer, List<String>> cargarAsignaciones() throws SQLException {
+        Map<Integer, List<String>> out = new HashMap<>();
+        try (Connection c = conexiones.abrir();
+             PreparedStatement ps = c.prepareStatement("SELECT pedido_id, arcos FROM plan_asignacion");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                String arcos = rs.getString(2);
+                out.put(rs.getInt(1), arcos.isEmpty() ? List.of()
+                        : List.of(arcos.split(java.util.regex.Pattern.quote(SEPARADOR_ARCOS))));
+            }
+        }
+        return out;
+    }
+
+    // ---- Estadísticas ----
+    public long getCambios() { return cambios.get(); }
+    public long getDesbordes() { return desbordes.get(); }
+    public long getFilasEscritas() { return filasEscritas.get(); }
+    public long getLotes() { return lotes.get(); }
+    public long getErrores() { return errores.get(); }
+
+    //Escribe lo pendiente y detiene el escritor (si la BD no responde, se rinde después de timeoutMs)
+    public void close(long timeoutMs) {
+        cerrando = true;
+        try {
+            escritor.join(timeoutMs);
+            if (escritor.isAlive()) {
+                escritor.interrupt();
+                escritor.join(timeoutMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        close(10_000);
+    }
+}
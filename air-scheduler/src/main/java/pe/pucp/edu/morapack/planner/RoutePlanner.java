@@ -3,220 +3,635 @@ package pe.pucp.edu.morapack.planner;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
-
-public class RoutePlanner {
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+public class RoutePlanner implements RouteSearch {
     private final TEGraph g;
     private final AeropuertosMap aps;
     private final SLAService sla;
     private final CapacityBook capBook; //EL capBook ES SOLO LECTURA, ACA NO HACEMOS RESERVA GLOBAL
+    private final TDGraph td; //modo dependiente del tiempo (sin grafo tiempo-expandido)
+
+    //Índice de salidas sobre g; se reconstruye si el grafo avanzó (advanceTo)
+    private volatile DepartureIndex indice;
+    private int versionIndice = -1;
 
-    private static final int MAX_ESCALAS = 3;
-    private static final int MAX_LABELS_POR_NODO = 8;
+    static final int MAX_ESCALAS = 3;
+    static final int MAX_LABELS_POR_NODO = 8; //etiquetas iguales en (t, hops, minResidual) por nodo
     private static final Duration MIN_LAYOVER = Duration.ZERO;
+    static final int MIN_LAYOVER_MIN = MinutoSim.minutos(MIN_LAYOVER);
+
+    //Perfiles hacia atrás por destino (llegada más temprana) para guiar y podar la búsqueda
+    private final ConcurrentHashMap<Integer, BackwardProfile> perfiles = new ConcurrentHashMap<>();
+
+    //Tiempo de viaje y vuelos mínimos entre aeropuertos (índices del DepartureIndex o del TDGraph).
+    //Solo dependen del plan de vuelos, así que se arman una vez.
+    private TravelTimeBounds cotas;
 
     public RoutePlanner(TEGraph g, AeropuertosMap aps, SLAService sla, CapacityBook capBook) {
         this.g = g;
         this.aps = aps;
         this.sla = sla;
         this.capBook = capBook;
+        this.td = null;
+    }
+
+    //Modo dependiente del tiempo: busca directamente sobre las tablas diarias de salidas,
+    //la capacidad de los vuelos se lee de las reservas del propio TDGraph
+    public RoutePlanner(TDGraph td, AeropuertosMap aps, SLAService sla) {
+        this.g = null;
+        this.aps = aps;
+        this.sla = sla;
+        this.capBook = null;
+        this.td = td;
+        String[] codigos = new String[td.airportCount()];
+        for (int a = 0; a < codigos.length; a++) codigos[a] = td.airportCode(a);
+        this.cotas = new TravelTimeBounds(td.getVuelos(), codigos, MAX_ESCALAS, MIN_LAYOVER_MIN);
+    }
+
+    //Planificador que lee la capacidad de otro libro (por ejemplo un CapacityOverlay con reservas tentativas):
+    //comparte el grafo, el índice de salidas y las cotas, y copia las opciones de búsqueda pero no la caché,
+    //que sigue atada a este capBook. En modo TD la capacidad de los vuelos está en el TDGraph, así que
+    //devuelve este mismo planificador.
+    public RoutePlanner sobreLibro(CapacityBook libro) {
+        if (td != null) return this;
+        RoutePlanner otro = new RoutePlanner(g, aps, sla, libro);
+        synchronized (this) {
+            otro.indice = indice();
+            otro.versionIndice = versionIndice;
+            otro.cotas = cotas;
+        }
+        otro.paralelo = paralelo;
+        otro.colaPorMinuto = colaPorMinuto;
+        otro.guiadaPorPerfil = guiadaPorPerfil;
+        otro.porCantidad = porCantidad;
+        return otro;
+    }
+
+    //Las etiquetas de las búsquedas van en un LabelPool por hilo (arreglos paralelos con puntero al padre).
+    //En la TE cada etiqueta está en un evento (nodo) de un aeropuerto; las esperas van de event del padre
+    //a depEvent y el vuelo es la salida dep del aeropuerto del padre.
+    static List<String> reconstruirCamino(LabelPool pool, int l, DepartureIndex idx) {
+        int n = pool.cadena(l);
+        List<String> path = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            int x = pool.tramo(i);
+            int padre = pool.parent[x];
+            int a = pool.airport[padre];
+            for (int e = pool.event[padre]; e < pool.depEvent[x]; e++) path.add(idx.espera(a, e).getArcId());
+            path.add(idx.depArc(a, pool.dep[x]).getArcId());
+        }
+        return path;
+    }
+
+    private synchronized DepartureIndex indice() {
+        if (indice == null || versionIndice != g.getVersion()) {
+            indice = new DepartureIndex(g);
+            versionIndice = g.getVersion();
+            //Los perfiles viejos apuntan al índice anterior: se sueltan todos
+            perfiles.clear();
+            if (cotas == null) {
+                String[] codigos = new String[indice.airportCount()];
+                for (int a = 0; a < codigos.length; a++) codigos[a] = indice.airportCode(a);
+                cotas = new TravelTimeBounds(g.getVuelos(), codigos, MAX_ESCALAS, MIN_LAYOVER_MIN);
+            }
+        }
+        return indice;
+    }
+
+    //Perfil del destino: no depende del deadline, así que lo comparten todos los pedidos a ese destino
+    //hasta que cambie el índice. Una búsqueda que empezó con un índice ya reemplazado arma su perfil
+    //sin guardarlo.
+    private BackwardProfile perfil(DepartureIndex idx, int dst) {
+        if (idx != indice) return new BackwardProfile(idx, dst, MAX_ESCALAS, MIN_LAYOVER_MIN);
+        BackwardProfile perfil = perfiles.compute(dst, (kk, p) -> (p != null && p.getIndice() == idx) ? p
+                : new BackwardProfile(idx, dst, MAX_ESCALAS, MIN_LAYOVER_MIN));
+        if (idx != indice) perfiles.remove(dst, perfil); //el índice cambió mientras se armaba
+        return perfil;
     }
 
     //Recordar que la llega es si o si antes del deadline:
     //restarrrrrr:
-    private LocalDateTime latestArrival(LocalDateTime deadline){
-        return deadline.minus(sla.getPickup());
+    //Todo en minutos desde SIM_DATE: deadline = listo + SLA, y se resta el tiempo de recojo
+    private int latestArrival(Pedido p, String origen, int listoMin){
+        return sla.latestArrival(listoMin, aps.obtener(origen), aps.obtener(p.getDestino()));
+    }
+
+    //Orden de las candidatas: ETA ↑, minResidual ↓, hops ↑
+    static final Comparator<CandidateRoute> ORDEN = Comparator
+            .comparingInt((CandidateRoute c) -> c.arrMin)
+            .thenComparing((CandidateRoute c) -> -c.minResidual)
+            .thenComparingInt(c -> c.hops);
+
+    //Si no es null, las búsquedas por origen del multi-origen corren en paralelo en este pool.
+    //Es un fork-join y no hilos virtuales: las búsquedas solo usan CPU (no se bloquean en E/S), así que
+    //conviene un hilo por núcleo con robo de trabajo, y invokeAll desde un worker no bloquea el hilo
+    private ForkJoinPool paralelo;
+
+    public void setParalelo(ForkJoinPool paralelo) {
+        this.paralelo = paralelo;
+    }
+
+    //Cola de la expansión: casilleros por minuto (por defecto; la clave solo avanza y está acotada por la
+    //llegada máxima) o heap binario
+    private boolean colaPorMinuto = true;
+
+    public void setColaPorMinuto(boolean colaPorMinuto) {
+        this.colaPorMinuto = colaPorMinuto;
     }
 
-    //Multi-origen:
+    //Extracción guiada por el perfil del destino (por defecto). Sin perfil la búsqueda TE expande por
+    //llegada más temprana hacia adelante, sin cota desde el destino.
+    private boolean guiadaPorPerfil = true;
+
+    public void setGuiadaPorPerfil(boolean guiadaPorPerfil) {
+        this.guiadaPorPerfil = guiadaPorPerfil;
+    }
+
+    //Búsqueda por cantidad: solo se usan vuelos y esperas con residual >= cantidad del pedido, así que
+    //toda candidata puede llevar el pedido completo. Sin este modo basta residual > 0.
+    private boolean porCantidad;
+
+    public void setPorCantidad(boolean porCantidad) {
+        this.porCantidad = porCantidad;
+    }
+
+    //Residual mínimo que tiene que tener cada arco de la ruta del pedido
+    private int minimoPorArco(Pedido p) {
+        return porCantidad ? Math.max(1, p.getCantidad()) : 1;
+    }
+
+    //Caché de candidatas (solo en modo TE); se conecta al capBook para invalidar con las reservas
+    private static final int VENTANA_CACHE_MIN = 60;
+    private CandidateCache cache;
+
+    public void setCache(CandidateCache cache) {
+        if (cache != null) cache.conectar(capBook);
+        this.cache = cache;
+    }
+
+    public CandidateCache getCache() {
+        return cache;
+    }
+
+    //Multi-origen: una búsqueda por origen (independientes y de solo lectura sobre g y capBook)
+    //y mezcla de las listas ya ordenadas de cada origen.
+    @Override
     public List<CandidateRoute> generarCandidatasMultiOrigen(
             Pedido p, Collection<String> origenes, int kTotal) {
 
         if (p == null || origenes == null || origenes.isEmpty() || kTotal <= 0)
             return java.util.Collections.emptyList();
 
-        java.util.Map<String, CandidateRoute> uniq = new java.util.HashMap<>(); // firma -> cand
-
+        List<String> lista = new ArrayList<>();
         for (String origen : origenes) {
-
             //Comentar al jp:
-            if (origen.equalsIgnoreCase(p.getDestino())) continue;
-
-            // Llamamos al mono-origen
-            java.util.List<CandidateRoute> parciales = generarCandidatas(p, origen, kTotal);
-
-            for (CandidateRoute c : parciales) {
-                // firma para deduplicar: secuencia exacta de arcos
-                String sig = String.join(">", c.arcIds);
-                // conserva la “mejor” si hay choque (ETA↑, minResidual↓, hops↑)
-                CandidateRoute prev = uniq.get(sig);
-                if (prev == null
-                        || c.arrUTC.isBefore(prev.arrUTC)
-                        || (c.arrUTC.equals(prev.arrUTC) && c.minResidual > prev.minResidual)
-                        || (c.arrUTC.equals(prev.arrUTC) && c.minResidual == prev.minResidual && c.hops < prev.hops)) {
-                    uniq.put(sig, c);
-                }
-            }
+            if (!origen.equalsIgnoreCase(p.getDestino())) lista.add(origen);
         }
+        if (maxUsosPorVuelo > 0) return diversas(p, lista, kTotal, maxUsosPorVuelo);
 
-        java.util.List<CandidateRoute> all = new java.util.ArrayList<>(uniq.values());
+        // Llamamos al mono-origen
+        return mezclar(porOrigen(lista, origen -> generarCandidatas(p, origen, kTotal)), kTotal);
+    }
 
-        // MISMO criterio de orden
-        all.sort(java.util.Comparator
-                .comparing((CandidateRoute c) -> c.arrUTC)
-                .thenComparing((CandidateRoute c) -> -c.minResidual)
-                .thenComparingInt(c -> c.hops));
+    //Una búsqueda por origen, en orden de origen; con setParalelo corren como tareas fork-join
+    private List<List<CandidateRoute>> porOrigen(List<String> origenes, Function<String, List<CandidateRoute>> buscar) {
+        List<List<CandidateRoute>> porOrigen = new ArrayList<>(origenes.size());
+        if (paralelo == null || origenes.size() < 2) {
+            for (String origen : origenes) porOrigen.add(buscar.apply(origen));
+            return porOrigen;
+        }
+        List<ForkJoinTask<List<CandidateRoute>>> tareas = new ArrayList<>(origenes.size());
+        for (String origen : origenes) tareas.add(ForkJoinTask.adapt(() -> buscar.apply(origen)));
+        if (ForkJoinTask.inForkJoinPool()) ForkJoinTask.invokeAll(tareas); //ya estamos en un worker (lote de pedidos)
+        else paralelo.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tareas)));
+        for (ForkJoinTask<List<CandidateRoute>> t : tareas) porOrigen.add(t.join());
+        return porOrigen;
+    }
 
-        if (all.size() > kTotal) return all.subList(0, kTotal);
+    //Mezcla k-way de listas ya ordenadas por ORDEN: los empates se resuelven por el orden de los orígenes
+    //y luego por la posición en su lista, así el resultado no depende de si se buscó en serie o en paralelo.
+    //Un mismo camino (misma secuencia de arcos) se toma una sola vez.
+    static List<CandidateRoute> mezclar(List<List<CandidateRoute>> listas, int kTotal) {
+        int n = listas.size();
+        int[] pos = new int[n];
+        PriorityQueue<Integer> frente = new PriorityQueue<>(Math.max(1, n), (x, y) -> {
+            int c = ORDEN.compare(listas.get(x).get(pos[x]), listas.get(y).get(pos[y]));
+            return c != 0 ? c : Integer.compare(x, y);
+        });
+        for (int i = 0; i < n; i++) if (!listas.get(i).isEmpty()) frente.add(i);
+
+        int total = 0;
+        for (List<CandidateRoute> l : listas) total += l.size();
+        List<CandidateRoute> all = new ArrayList<>(Math.min(kTotal, total));
+        Set<List<String>> vistos = new HashSet<>();
+        while (!frente.isEmpty() && all.size() < kTotal) {
+            int i = frente.poll();
+            CandidateRoute c = listas.get(i).get(pos[i]++);
+            if (vistos.add(c.arcIds)) all.add(c);
+            if (pos[i] < listas.get(i).size()) frente.add(i);
+        }
         return all;
     }
 
 
-    //Mono-origen:
-    public List<CandidateRoute> generarCandidatas(Pedido p, String origen, int k) {
-        if (p == null || origen == null || origen.isEmpty() || k <= 0) return Collections.emptyList();
+    //Candidatas diversas: si se fija maxUsosPorVuelo > 0, el multi-origen (y el lote) limitan cuántas
+    //candidatas del pedido pueden compartir un mismo vuelo, para que al llenarse un vuelo cuello de
+    //botella no caigan todas juntas (1 = vuelos disjuntos).
+    private static final int FACTOR_DIVERSAS = 3; //candidatas por origen que se piden de más para elegir
+    private static final int RONDAS_DIVERSAS = 2; //búsquedas extra sin los vuelos ya saturados
+    private int maxUsosPorVuelo;
 
-        LocalDateTime earliest = p.getFecha(); //está en el mismo día que el grafo
-        LocalDateTime deadline = sla.deadline(earliest, sla.sla(aps.obtener(origen), aps.obtener(p.getDestino())));
-        LocalDateTime latestArr = latestArrival(deadline);
+    public void setDiversidad(int maxUsosPorVuelo) {
+        this.maxUsosPorVuelo = Math.max(0, maxUsosPorVuelo);
+    }
 
+    public List<CandidateRoute> generarCandidatasDiversas(Pedido p, Collection<String> origenes, int k, int maxUsosPorVuelo) {
+        if (p == null || origenes == null || origenes.isEmpty() || k <= 0) return Collections.emptyList();
+        List<String> lista = new ArrayList<>();
+        for (String origen : origenes) {
+            if (!origen.equalsIgnoreCase(p.getDestino())) lista.add(origen);
+        }
+        return diversas(p, lista, k, Math.max(1, maxUsosPorVuelo));
+    }
 
-        TreeSet<LocalDateTime> eventos = g.eventsByAirport.get(origen);
-        if (eventos == null) return Collections.emptyList();
+    //Se piden k * FACTOR_DIVERSAS por origen y se eligen en orden (ORDEN) las que no usan un vuelo que ya
+    //está en maxUsos elegidas. Si faltan, se vuelve a buscar sin los vuelos saturados (solo TE).
+    //maxUsos es un límite duro: si aun así no hay k que lo cumplan, se devuelven menos de k.
+    private List<CandidateRoute> diversas(Pedido p, List<String> origenes, int k, int maxUsos) {
+        int kPool = k * FACTOR_DIVERSAS;
+        List<CandidateRoute> todas = mezclar(porOrigen(origenes, origen -> generarCandidatas(p, origen, kPool, null)), Integer.MAX_VALUE);
+
+        List<CandidateRoute> elegidas = new ArrayList<>(k);
+        Set<List<String>> tomadas = new HashSet<>();
+        Map<String, Integer> usos = new HashMap<>();
+        elegirDiversas(todas, elegidas, tomadas, usos, k, maxUsos);
+
+        BitSet excluidos = new BitSet();
+        for (int ronda = 0; ronda < RONDAS_DIVERSAS && elegidas.size() < k && td == null; ronda++) {
+            int antes = excluidos.cardinality();
+            for (Map.Entry<String, Integer> u : usos.entrySet()) {
+                if (u.getValue() >= maxUsos) excluidos.set(g.arcsById.get(u.getKey()).getIndex());
+            }
+            if (excluidos.cardinality() == antes) break;
+            List<CandidateRoute> nuevas = mezclar(porOrigen(origenes, origen -> generarCandidatas(p, origen, kPool, excluidos)), Integer.MAX_VALUE);
+            int n = elegidas.size();
+            elegirDiversas(nuevas, elegidas, tomadas, usos, k, maxUsos);
+            if (elegidas.size() == n) break;
+        }
 
-        LocalDateTime startT = eventos.ceiling(earliest);
-        if (startT == null) return Collections.emptyList();
+        elegidas.sort(ORDEN);
+        return elegidas;
+    }
 
-        //Recordar que esta es la estructura del idNodo
-        final String startNodeId = origen + "@" + startT;
+    private void elegirDiversas(List<CandidateRoute> candidatas, List<CandidateRoute> elegidas, Set<List<String>> tomadas,
+                                Map<String, Integer> usos, int k, int maxUsos) {
+        for (CandidateRoute c : candidatas) {
+            if (elegidas.size() >= k) return;
+            if (tomadas.contains(c.arcIds)) continue;
+            List<String> vuelos = vuelosDe(c);
+            boolean cabe = true;
+            for (String v : vuelos) {
+                if (usos.getOrDefault(v, 0) >= maxUsos) {
+                    cabe = false;
+                    break;
+                }
+            }
+            if (!cabe) continue;
+            for (String v : vuelos) usos.merge(v, 1, Integer::sum);
+            tomadas.add(c.arcIds);
+            elegidas.add(c);
+        }
+    }
 
-        //Estamos haciendo label-setting con poda por dominancia
+    //Tramos de vuelo de la candidata (en TD todos los arcos son vuelos)
+    private List<String> vuelosDe(CandidateRoute c) {
+        if (td != null) return c.arcIds;
+        List<String> vuelos = new ArrayList<>(c.hops);
+        for (String id : c.arcIds) {
+            TEGraph.Arc a = g.arcsById.get(id);
+            if (a != null && a.getArcType() == ArcType.VUELO) vuelos.add(id);
+        }
+        return vuelos;
+    }
 
-        class Label {
-            String nodeId;
-            LocalDateTime t;
-            int hops;
-            int minResidual;
-            List<String> path;
+    //Avance de un lote: pedidos terminados, total y ritmo en pedidos por segundo (se llama desde los workers)
+    public interface ProgresoLote {
+        void reportar(int hechos, int total, double pedidosPorSeg);
+    }
 
-            Label(String nodeId, LocalDateTime t) {
-                this.nodeId = nodeId;
-                this.t = t;
-                this.hops = 0;
-                this.minResidual = Integer.MAX_VALUE;
-                this.path = new ArrayList<>();
+    private static final int PEDIDOS_POR_TAREA = 8;
+
+    //Lote: candidatas multi-origen de todos los pedidos. Con setParalelo se reparten en ese pool (cada worker
+    //busca con su propio LabelPool); sin pool van en serie en el hilo que llama. Los resultados se van dejando
+    //en un mapa concurrente a medida que terminan y el avance se reporta unas 20 veces por lote (progreso
+    //puede ser null).
+    public ConcurrentMap<Integer, List<CandidateRoute>> generarCandidatasLote(
+            Collection<Pedido> pedidos, Collection<String> origenes, int k, ProgresoLote progreso) {
+
+        List<Pedido> lista = new ArrayList<>(pedidos);
+        ConcurrentMap<Integer, List<CandidateRoute>> store = new ConcurrentHashMap<>(Math.max(16, lista.size() * 2));
+        if (lista.isEmpty()) return store;
+        if (td == null) indice(); //se arma una vez antes de repartir
+
+        int total = lista.size();
+        int cada = Math.max(1, total / 20);
+        AtomicInteger hechos = new AtomicInteger();
+        long inicio = System.nanoTime();
+
+        IntConsumer uno = i -> {
+            Pedido p = lista.get(i);
+            List<CandidateRoute> cand = generarCandidatasMultiOrigen(p, origenes, k);
+            store.put(p.getIdPedido(), cand == null ? List.of() : cand); // nunca null
+            int n = hechos.incrementAndGet();
+            if (progreso != null && (n % cada == 0 || n == total)) {
+                double seg = (System.nanoTime() - inicio) / 1e9;
+                progreso.reportar(n, total, seg > 0 ? n / seg : 0);
             }
+        };
+        if (paralelo == null) {
+            for (int i = 0; i < total; i++) uno.accept(i);
+            return store;
+        }
 
-            Label extend(TEGraph.Arc a){
-                Label nx = new Label(a.getTo().getNodeId(), a.getTo().getTimestampUTC());
-                nx.hops = this.hops + ( (a.getArcType() == ArcType.VUELO ? 1 : 0));
-
-                int residual = capBook.residual(a);
-                nx.minResidual = Math.min(this.minResidual, residual);
-
-                nx.path = new ArrayList<>(this.path);
-                nx.path.add(a.getArcId());
+        class Tramo extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+            final int desde, hasta;
 
-                return nx;
+            Tramo(int desde, int hasta) {
+                this.desde = desde;
+                this.hasta = hasta;
             }
 
+            @Override
+            protected void compute() {
+                if (hasta - desde > PEDIDOS_POR_TAREA) {
+                    int m = (desde + hasta) >>> 1;
+                    invokeAll(new Tramo(desde, m), new Tramo(m, hasta));
+                    return;
+                }
+                for (int i = desde; i < hasta; i++) uno.accept(i);
+            }
         }
 
-        //System.out.println("Pedido " + p.getIdPedido() + " earliest=" + earliest);
-        //System.out.println("deadline=" + deadline + " latestArr=" + latestArr);
-        //System.out.println("startT=" + startT + " startNodeId=" + startNodeId);
+        paralelo.invoke(new Tramo(0, total));
+        return store;
+    }
 
-        //Esto expande por llegada más temprana:
-        PriorityQueue<Label> pq = new PriorityQueue<>(Comparator.comparing(l -> l.t));
-        Map<String,List<Label>> best = new HashMap<>();
+    //Mono-origen:
+    @Override
+    public List<CandidateRoute> generarCandidatas(Pedido p, String origen, int k) {
+        return generarCandidatas(p, origen, k, null);
+    }
+
+    //excluidos: índices de arcos de vuelo que no se pueden tomar (null = ninguno; solo TE, sin caché)
+    private List<CandidateRoute> generarCandidatas(Pedido p, String origen, int k, BitSet excluidos) {
+        if (p == null || origen == null || origen.isEmpty() || k <= 0) return Collections.emptyList();
+        if (td != null) return generarCandidatasTD(p, origen, k);
+
+        DepartureIndex idx = indice();
+        int o = idx.airportIndex(origen);
+        int dst = idx.airportIndex(p.getDestino());
+        if (o < 0) return Collections.emptyList();
+
+        LocalDateTime earliest = p.getFecha(); //está en el mismo día que el grafo
+        int latestArr = latestArrival(p, origen, MinutoSim.piso(earliest));
+
+        int startEvent = idx.ceilingEvent(o, MinutoSim.techo(earliest));
+        if (startEvent < 0) return Collections.emptyList();
+
+        CandidateCache cache = this.cache;
+        int q = minimoPorArco(p);
+        if (cache == null || dst < 0 || excluidos != null) return buscar(p.getIdPedido(), idx, o, dst, startEvent, latestArr, q, k, excluidos);
+
+        //Con caché: los pedidos que arrancan del mismo evento y cuya llegada máxima cae en la misma
+        //ventana comparten una búsqueda hecha con el fin de la ventana. Las llegadas salen en orden de t
+        //y la dominancia es por nodo (mismo t), así que quedarse con las que llegan a tiempo da lo mismo
+        //que haber buscado con la llegada máxima del pedido.
+        int version = g.getVersion();
+        int ventana = Math.floorDiv(latestArr, VENTANA_CACHE_MIN);
+        CandidateCache.Clave clave = new CandidateCache.Clave(o, dst, startEvent, ventana, q, k);
+        List<CandidateRoute> rutas = cache.obtener(clave, version);
+        if (rutas == null) {
+            rutas = buscar(p.getIdPedido(), idx, o, dst, startEvent, (ventana + 1) * VENTANA_CACHE_MIN - 1, q, k, null);
+            cache.guardar(clave, rutas, g, version);
+        }
+        List<CandidateRoute> out = new ArrayList<>(rutas.size());
+        for (CandidateRoute c : rutas) {
+            if (c.arrMin <= latestArr) out.add(new CandidateRoute(p.getIdPedido(), c.arcIds, c.depMin, c.arrMin, c.cost, c.hops, c.minResidual));
+        }
+        return out;
+    }
+
+    //Búsqueda TE desde el evento startEvent del origen hasta latestArr, solo por arcos con residual >= q
+    private List<CandidateRoute> buscar(int pedidoId, DepartureIndex idx, int o, int dst, int startEvent, int latestArr, int q, int k,
+                                        BitSet excluidos) {
+        int startT = idx.eventMinute(o, startEvent);
+        int minLayover = MIN_LAYOVER_MIN;
+
+        //Cotas entre aeropuertos: si ni con el viaje más corto posible se llega, se descarta sin buscar
+        TravelTimeBounds cotas = this.cotas; //ya armadas por indice()
+        if (dst >= 0 && o != dst && !cotas.alcanza(o, dst, startT + minLayover, MAX_ESCALAS, latestArr)) return Collections.emptyList();
+
+        //Cota desde el destino: si ni sin capacidad se llega a tiempo desde el origen, no hay nada que buscar
+        BackwardProfile perfil = (dst < 0 || !guiadaPorPerfil) ? null : perfil(idx, dst);
+        if (perfil != null && o != dst && !perfil.alcanza(o, startT + minLayover, MAX_ESCALAS, latestArr)) return Collections.emptyList();
+
+        //Estamos haciendo label-setting con poda por dominancia.
+        //Las etiquetas viven solo en eventos donde se llega (o en el inicio): desde ahí se salta
+        //directo a cada vuelo posterior del aeropuerto, agregando las esperas intermedias al camino.
+
+        //Esto expande por llegada más temprana. Con perfil, la clave de cada etiqueta es la llegada más
+        //temprana posible al destino desde ella (sin mirar capacidad): es una cota consistente, así que
+        //las rutas siguen saliendo en orden de llegada pero solo se expanden las etiquetas que podrían
+        //estar entre las k primeras. Si la capacidad corta esos caminos la cola sigue con las de clave
+        //mayor, y en el peor caso se recorre lo mismo que la búsqueda hacia adelante sin guía.
+        LabelPool pool = LabelPool.delHilo();
+        pool.prepararNodos(idx.nodeCount(), MAX_ESCALAS, MAX_LABELS_POR_NODO); //frente no dominado por nodo
+        if (colaPorMinuto) pool.usarCasilleros(startT, latestArr, MAX_ESCALAS);
         List<CandidateRoute> out = new ArrayList<>();
 
         //Inicial:
-        pq.add(new Label(startNodeId, startT));
+        pool.push(pool.nueva(o, startEvent, startT, 0, Integer.MAX_VALUE));
 
-        while (!pq.isEmpty() && out.size() < k) {
-            Label cur = pq.poll();
+        while (!pool.isEmpty() && out.size() < k) {
+            int cur = pool.poll();
+            int curAirport = pool.airport[cur];
+            int curT = pool.t[cur];
+            int curHops = pool.hops[cur];
+            int curRes = pool.minResidual[cur];
 
             //Si llegué al destino y a tiempo:
-            if (cur.nodeId.startsWith(p.getDestino()+"@") && !cur.t.isAfter(latestArr)){
+            if (curAirport == dst && curT <= latestArr){
 
-                LocalDateTime depUTC = startT;
-                if (!cur.path.isEmpty()){
-                    TEGraph.Arc first = g.arcsById.get(cur.path.get(0));
-                    depUTC = first.getFrom().getTimestampUTC();
+                List<String> path = reconstruirCamino(pool, cur, idx);
+                int depMin = startT; //salida del primer arco (espera o vuelo)
+                if (!path.isEmpty()){
+                    TEGraph.Arc first = g.arcsById.get(path.get(0));
+                    depMin = first.getFrom().getMinuto();
                 }
 
-                int maxAsignable = (cur.minResidual == Integer.MAX_VALUE) ? 0 : cur.minResidual;
+                int maxAsignable = (curRes == Integer.MAX_VALUE) ? 0 : curRes;
 
-                out.add( new CandidateRoute(p.getIdPedido(), cur.path, depUTC, cur.t, 0, cur.hops,
+                out.add( new CandidateRoute(pedidoId, path, depMin, curT, 0, curHops,
                         maxAsignable));
                 continue;
             }
 
-            //Poda por tiempo
-            if (cur.t.isAfter(latestArr)) continue;
-
-            //Expandimos los arcos salientes de dicho nodo
-            List<TEGraph.Arc> salientes = g.out.get(cur.nodeId);
-            if (salientes == null) continue;
-
-            for (TEGraph.Arc a : salientes){
+            //Poda por tiempo y por escalas
+            if (curT > latestArr || curHops >= MAX_ESCALAS) continue;
+
+            //Saltamos a cada vuelo que sale del aeropuerto a partir de cur.t.
+            //Esperar hasta un evento posterior es como pasar por ese nodo de espera: si ahí ya hay
+            //una etiqueta que domina, también domina en todas las salidas siguientes y cortamos.
+            int nDep = idx.departureCount(curAirport);
+            int evento = pool.event[cur];      //último evento hasta el que se esperó
+            int resEspera = Integer.MAX_VALUE; //menor residual de las esperas desde cur.event
+            int limite = latestArr;
+            if (dst >= 0) limite = Math.min(limite, cotas.ultimaSalida(curAirport, dst, MAX_ESCALAS - curHops, latestArr));
+            for (int j = idx.firstDeparture(curAirport, curT + minLayover); j < nDep; j++){
+                int dep = idx.depMinute(curAirport, j);
+                if (dep > limite) break;
+                //Desde esta salida (o las siguientes) ya no hay ruta a tiempo con los vuelos que quedan
+                if (perfil != null && perfil.llegadaMinimaDesde(curAirport, j, MAX_ESCALAS - curHops) > latestArr) break;
+
+                int depEvent = idx.depEvent(curAirport, j);
+                if (depEvent != evento){
+                    //Almacén: consulta por rango de las esperas entre el evento anterior y esta salida
+                    resEspera = Math.min(resEspera, idx.minResidualEspera(curAirport, evento, depEvent, capBook));
+                    evento = depEvent;
+                    if (resEspera < q) break;
+
+                    int espera = pool.nueva(curAirport, depEvent, dep, curHops, Math.min(curRes, resEspera));
+                    if (!pool.agregarSiNoDominada(idx.nodeIndex(curAirport, depEvent), espera)) break;
+                }
 
-                LocalDateTime dep = a.getFrom().getTimestampUTC();
-                LocalDateTime arr = a.getTo().getTimestampUTC();
+                int arrEvent = idx.arrEvent(curAirport, j);
+                if (arrEvent < 0) continue;
+                int arrAirport = idx.arrAirport(curAirport, j);
+                if (curHops + 1 >= MAX_ESCALAS && arrAirport != dst) continue; //ya no podría seguir
+                int arr = idx.eventMinute(arrAirport, arrEvent);
+                if (arr > latestArr) continue;     // llegaría tarde
+                if (arrAirport != dst && dst >= 0 && !cotas.alcanza(arrAirport, dst, arr + minLayover, MAX_ESCALAS - curHops - 1, latestArr)) continue;
+                //Desde ahí ya no se llega a tiempo ni sin mirar capacidad
+                int cota = (arrAirport == dst || perfil == null) ? arr : perfil.llegadaMinima(arrAirport, arr + minLayover, MAX_ESCALAS - curHops - 1);
+                if (cota > latestArr) continue;
+
+                TEGraph.Arc vuelo = idx.depArc(curAirport, j);
+                if (excluidos != null && excluidos.get(vuelo.getIndex())) continue;
+                int residual = capBook.residual(vuelo);
+                if (residual < q) continue;
+
+                int nx = pool.nueva(arrAirport, arrEvent, arr, curHops + 1, Math.min(curRes, Math.min(resEspera, residual)));
+                if (!pool.agregarSiNoDominada(idx.nodeIndex(arrAirport, arrEvent), nx)) continue;
+
+                pool.parent[nx] = cur;
+                pool.depEvent[nx] = depEvent;
+                pool.dep[nx] = j;
+                pool.clave[nx] = cota;
+
+                pool.push(nx);
+            }
+        }
 
-                if (dep.isBefore(cur.t)) continue;        // no puedo salir antes de llegar
-                if (arr.isAfter(latestArr)) continue;     // llegaría tarde
+        // Orden final: ETA ↑, minResidual ↓(negativo para priorizar alto), hops ↑
+        out.sort(ORDEN);
 
-                int nextHops = cur.hops + (a.getArcType() == ArcType.VUELO ? 1 : 0);
-                if (nextHops > MAX_ESCALAS) continue;
+        return out;
+    }
 
-                if (capBook.residual(a) <= 0) continue;
+    //Mono-origen sobre el grafo dependiente del tiempo:
+    //las esperas son implícitas, desde (aeropuerto, t) se puede tomar cualquier salida posterior
+    private List<CandidateRoute> generarCandidatasTD(Pedido p, String origen, int k) {
+        int o = td.airportIndex(origen);
+        int dst = td.airportIndex(p.getDestino());
+        if (o < 0 || dst < 0) return Collections.emptyList();
+
+        LocalDateTime earliest = p.getFecha();
+        int startT = MinutoSim.techo(earliest);
+        int latestArr = latestArrival(p, origen, MinutoSim.piso(earliest));
+        int minLayover = MIN_LAYOVER_MIN;
+        int q = minimoPorArco(p);
+        if (o != dst && !cotas.alcanza(o, dst, startT + minLayover, MAX_ESCALAS, latestArr)) return Collections.emptyList();
+
+        //Frente de las etiquetas ya expandidas por aeropuerto. Como la espera es libre, una etiqueta expandida
+        //antes (t menor o igual) con hops <= y minResidual >= domina a cualquier otra del mismo aeropuerto:
+        //basta el mejor residual por cantidad de escalas, y los empates también quedan dominados.
+        LabelPool pool = LabelPool.delHilo();
+        pool.prepararNodos(td.airportCount(), MAX_ESCALAS, 0);
+        if (colaPorMinuto) pool.usarCasilleros(startT, latestArr, MAX_ESCALAS);
+        List<CandidateRoute> out = new ArrayList<>();
 
-                // Layover mínimo *******************
-                if (a.getArcType() == ArcType.VUELO && MIN_LAYOVER.compareTo(Duration.ZERO) > 0){
-                    // si quieres exigir conexión mínima, verifica dep - cur.t >= MIN_LAYOVER
-                    if (Duration.between(cur.t, dep).compareTo(MIN_LAYOVER) < 0) continue;
+        pool.push(pool.nueva(o, -1, startT, 0, Integer.MAX_VALUE));
+
+        while (!pool.isEmpty() && out.size() < k) {
+            int cur = pool.poll();
+            int curAirport = pool.airport[cur];
+            int curT = pool.t[cur];
+            int curHops = pool.hops[cur];
+            int curRes = pool.minResidual[cur];
+
+            if (curAirport == dst && curT <= latestArr) {
+                //Camino: un vuelo por tramo (event = día, dep = índice del vuelo en el aeropuerto del padre)
+                int n = pool.cadena(cur);
+                List<String> path = new ArrayList<>(n);
+                int depMin = startT;
+                for (int i = 0; i < n; i++) {
+                    int x = pool.tramo(i);
+                    int a = pool.airport[pool.parent[x]];
+                    if (i == 0) depMin = td.depMinute(a, pool.dep[x], pool.event[x]);
+                    path.add(td.arcId(a, pool.dep[x], pool.event[x]));
                 }
+                int maxAsignable = (curRes == Integer.MAX_VALUE) ? 0 : curRes;
+                out.add(new CandidateRoute(p.getIdPedido(), path, depMin, curT, 0, curHops,
+                        maxAsignable));
+                continue;
+            }
 
-                Label nx = cur.extend(a);
-
-                List<Label> pool = best.computeIfAbsent(a.getTo().getNodeId(), __ -> new ArrayList<>());
-                boolean dominado = false;
-
-                for (Label b : pool){
-                    boolean bDominaNx =
-                            !b.t.isAfter(nx.t) &&        // b llega antes o igual
-                            b.hops <= nx.hops &&         // b usa <= escalas
-                            b.minResidual >= nx.minResidual && // b tiene >= capacidad mínima
-                            ( b.t.isBefore(nx.t) || b.hops < nx.hops || b.minResidual > nx.minResidual ); // al menos una estricta
-
-                    if (bDominaNx) { dominado = true; break; }
-                }
-                if (dominado) continue;
-
-                pool.add(nx);
-                pool.sort(Comparator
-                        .comparing((Label l) -> l.t)
-                        .thenComparingInt(l -> l.hops)
-                        .thenComparing((Label l) -> -l.minResidual)
-                );
-                if (pool.size() > MAX_LABELS_POR_NODO) {
-                    pool.remove(pool.size() - 1);
+            if (curT > latestArr || curHops >= MAX_ESCALAS) continue;
+            if (!pool.agregarSiNoDominada(curAirport, cur)) continue;
+
+            int n = td.departureCount(curAirport);
+            if (n == 0) continue;
+
+            //Recorremos las salidas del aeropuerto día por día a partir de cur.t
+            int earliestDep = curT + minLayover;
+            int limite = Math.min(latestArr, cotas.ultimaSalida(curAirport, dst, MAX_ESCALAS - curHops, latestArr));
+            for (int day = MinutoSim.dia(earliestDep); td.depMinute(curAirport, 0, day) <= limite; day++) {
+                int i0 = (day == MinutoSim.dia(earliestDep)) ? td.firstDeparture(curAirport, earliestDep - day * MinutoSim.MIN_POR_DIA) : 0;
+
+                for (int i = i0; i < n; i++) {
+                    int dep = td.depMinute(curAirport, i, day);
+                    if (dep > limite) break;
+                    int arr = dep + td.duration(curAirport, i);
+                    if (arr > latestArr) continue;
+
+                    Vuelo v = td.vuelo(curAirport, i);
+                    int residual = td.residual(v, day);
+                    if (residual < q) continue;
+
+                    int destino = td.destino(curAirport, i);
+                    if (destino != dst && !cotas.alcanza(destino, dst, arr + minLayover, MAX_ESCALAS - curHops - 1, latestArr)) continue;
+                    int nextHops = curHops + 1;
+                    int nextRes = Math.min(curRes, residual);
+                    if (destino != dst && pool.dominada(destino, nextHops, nextRes)) continue;
+
+                    int nx = pool.nueva(destino, day, arr, nextHops, nextRes);
+                    pool.parent[nx] = cur;
+                    pool.dep[nx] = i;
+                    pool.push(nx);
                 }
-
-                pq.add(nx);
-
-
             }
-
-
         }
 
-        // Orden final: ETA ↑, minResidual ↓(negativo para priorizar alto), hops ↑
-        out.sort(Comparator
-                .comparing((CandidateRoute c) -> c.arrUTC)
-                .thenComparing((CandidateRoute c) -> -c.minResidual)
-                .thenComparingInt(c -> c.hops));
+        out.sort(ORDEN);
 
         return out;
     }
@@ -227,11 +642,12 @@ public class RoutePlanner {
                 p.getCantidad(), c.minResidual, (c.minResidual >= p.getCantidad() ? "OK" : "NO FIT"));
 
         System.out.println("     Detalle por arco:");
+        if (g == null) return; //modo dependiente del tiempo: no hay arcos explícitos
         for (String arcId : c.arcIds) {
             TEGraph.Arc a = g.arcsById.get(arcId);
             if (a == null) continue;
             int cap = a.getCapacity();
-            int used = capBook.used(arcId);
+            int used = capBook.used(a);
             int res = Math.max(0, cap - used);
             int resPost = res - p.getCantidad(); // hipotético PORQUE ACA NO ASIGNAMOS REAL, SOLO ARMAMOS RUTAS CANDIDATAS
             System.out.printf("       %s  cap=%d  used=%d  res=%d  -> res(si asigno q=%d)=%d%n",
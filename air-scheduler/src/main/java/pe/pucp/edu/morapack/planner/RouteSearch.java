@@ -0,0 +1,25 @@
+package pe.pucp.edu.morapack.planner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+//Motor de búsqueda de rutas candidatas. RoutePlanner (label-setting sobre el TEGraph) y
+//ConnectionScanPlanner (CSA sobre la tabla de conexiones) devuelven el mismo formato de CandidateRoute:
+//ids de arcos del TEGraph (esperas y vuelos), ordenadas por ETA ↑, minResidual ↓, hops ↑.
+//No son intercambiables candidata a candidata: la mejor ETA es la misma, pero la dominancia por nodo de
+//RoutePlanner depende del orden de expansión y el CSA se queda con el frente Pareto estricto.
+public interface RouteSearch {
+
+    List<CandidateRoute> generarCandidatas(Pedido p, String origen, int k);
+
+    //Una búsqueda por origen y mezcla de las listas (en serie; RoutePlanner puede hacerlo en paralelo)
+    default List<CandidateRoute> generarCandidatasMultiOrigen(Pedido p, Collection<String> origenes, int kTotal) {
+        if (p == null || origenes == null || origenes.isEmpty() || kTotal <= 0) return List.of();
+        List<List<CandidateRoute>> porOrigen = new ArrayList<>();
+        for (String origen : origenes) {
+            if (!origen.equalsIgnoreCase(p.getDestino())) porOrigen.add(generarCandidatas(p, origen, kTotal));
+        }
+        return RoutePlanner.mezclar(porOrigen, kTotal);
+    }
+}
@@ -8,6 +8,11 @@ public class SLAService {
     private static final Duration INTER_SLA = Duration.ofHours(72); //3 días interCont
     private static final Duration pickup = Duration.ofHours(2); //2 horas se recoge
 
+    //Los mismos plazos en minutos, para los caminos calientes del planificador
+    private static final int INTRA_SLA_MIN = MinutoSim.minutos(INTRA_SLA);
+    private static final int INTER_SLA_MIN = MinutoSim.minutos(INTER_SLA);
+    private static final int PICKUP_MIN = MinutoSim.minutos(pickup);
+
     public boolean isIntra (Aeropuerto a1, Aeropuerto a2){
         return a1.getContinente().equalsIgnoreCase(a2.getContinente());
     }
@@ -23,4 +28,22 @@ public class SLAService {
     public LocalDateTime deadline(LocalDateTime readyTimeUTC, Duration sla){
         return readyTimeUTC.plus(sla);
     }
+
+    // ---- En minutos desde SIM_DATE (sin crear objetos) ----
+    public int slaMin (Aeropuerto a1, Aeropuerto a2){
+        return isIntra(a1, a2) ? INTRA_SLA_MIN : INTER_SLA_MIN;
+    }
+
+    public int getPickupMin(){
+        return PICKUP_MIN;
+    }
+
+    public int deadline(int readyMin, Aeropuerto a1, Aeropuerto a2){
+        return readyMin + slaMin(a1, a2);
+    }
+
+    //Última llegada que todavía deja el tiempo de recojo antes del deadline
+    public int latestArrival(int readyMin, Aeropuerto a1, Aeropuerto a2){
+        return deadline(readyMin, a1, a2) - PICKUP_MIN;
+    }
 }
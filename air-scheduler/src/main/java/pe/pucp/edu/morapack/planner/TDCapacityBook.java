@@ -0,0 +1,68 @@
+package pe.pucp.edu.morapack.planner;
+
+//CapacityBook para el modo dependiente del tiempo: los vuelos se llevan por instancia (vuelo, día) en el
+//propio TDGraph, que es de donde lee RoutePlanner en ese modo; las esperas siguen en el libro por arco
+//(o en su WarehouseBook). Así el memético, el CandidateIndex, el journal y la BD confirman con arcos del
+//TEGraph como siempre, y la siguiente búsqueda TD ya ve esas reservas.
+public class TDCapacityBook extends CapacityBook {
+    private final TDGraph td;
+
+    public TDCapacityBook(TDGraph td, WarehouseBook almacen) {
+        super(almacen);
+        this.td = td;
+    }
+
+    public TDGraph getTD() {
+        return td;
+    }
+
+    private static boolean esVuelo(TEGraph.Arc arc) {
+        return arc.getArcType() == ArcType.VUELO && arc.getVuelo() != null;
+    }
+
+    //Día de la instancia: el de la salida (como en TDGraph.depMinute)
+    private static int dia(TEGraph.Arc arc) {
+        return TDGraph.day(arc.getFrom().getMinuto());
+    }
+
+    @Override
+    public int used(TEGraph.Arc arc) {
+        return esVuelo(arc) ? td.used(arc.getVuelo(), dia(arc)) : super.used(arc);
+    }
+
+    @Override
+    public void reserve(TEGraph.Arc arc, int q, int pedidoId) {
+        if (!esVuelo(arc)) {
+            super.reserve(arc, q, pedidoId);
+            return;
+        }
+        td.reserve(arc.getVuelo(), dia(arc), q);
+        avisarReserva(arc, q, pedidoId);
+    }
+
+    @Override
+    public void release(TEGraph.Arc arc, int q, int pedidoId) {
+        if (!esVuelo(arc)) {
+            super.release(arc, q, pedidoId);
+            return;
+        }
+        td.release(arc.getVuelo(), dia(arc), q);
+        avisarLiberacion(arc, q, pedidoId);
+    }
+
+    @Override
+    public void evict(TEGraph.Arc arc) {
+        if (!esVuelo(arc)) {
+            super.evict(arc);
+            return;
+        }
+        int u = td.used(arc.getVuelo(), dia(arc));
+        if (u > 0) td.release(arc.getVuelo(), dia(arc), u);
+    }
+
+    //Las reservas de vuelo viven en el TDGraph, que no se copia
+    @Override
+    public CapacityBook snapshot() {
+        throw new UnsupportedOperationException("TDCapacityBook no tiene snapshot: los vuelos se reservan en el TDGraph");
+    }
+}
@@ -0,0 +1,149 @@
+package pe.pucp.edu.morapack.planner;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static pe.pucp.edu.morapack.planner.SimulationConfig.SIM_DATE;
+
+//Grafo dependiente del tiempo (implícito): aprovecha que todos los vuelos se repiten cada día.
+//Los nodos son aeropuertos con su tabla diaria de salidas ordenada por hora GMT; una instancia
+//de vuelo es el par (vuelo, día) y se genera al vuelo durante la búsqueda. Solo existen registros
+//para las instancias que tienen capacidad reservada, así que la memoria no depende del horizonte.
+public class TDGraph {
+    private final LocalDate base;
+
+    private final String[] codigos;
+    private final Aeropuerto[] aeropuertos;
+    private final Map<String, Integer> idxAeropuerto = new HashMap<>();
+
+    //Tabla diaria de salidas por aeropuerto, ordenada por minuto del día (GMT)
+    private final int[][] depMinute;
+    private final int[][] duration;
+    private final int[][] destino;
+    private final Vuelo[][] vuelo;
+    private final VuelosMap vuelosMap;
+
+    //Reservas por instancia (vueloId, día) -> cantidad usada
+    private final Map<Long, Integer> usedByInstance = new HashMap<>();
+
+    public TDGraph(AeropuertosMap aeropuertosMap, VuelosMap vuelosMap) {
+        this.base = SIM_DATE;
+        this.vuelosMap = vuelosMap;
+
+        Map<String, Aeropuerto> aps = aeropuertosMap.getAeropuertos();
+        codigos = aps.keySet().toArray(new String[0]);
+        Arrays.sort(codigos);
+        aeropuertos = new Aeropuerto[codigos.length];
+        for (int i = 0; i < codigos.length; i++) {
+            aeropuertos[i] = aps.get(codigos[i]);
+            idxAeropuerto.put(codigos[i], i);
+        }
+
+        int A = codigos.length;
+        depMinute = new int[A][];
+        duration = new int[A][];
+        destino = new int[A][];
+        vuelo = new Vuelo[A][];
+
+        Map<String, List<Vuelo>> vuelosPorOrigen = vuelosMap.getVuelosPorOrigen();
+        for (int a = 0; a < A; a++) {
+            List<Vuelo> vs = new ArrayList<>(vuelosPorOrigen.getOrDefault(codigos[a], Collections.emptyList()));
+            vs.sort(Comparator.comparingInt(v -> MinutoSim.delDia(v.getHoraGMTOrigen())));
+
+            int n = vs.size();
+            depMinute[a] = new int[n];
+            duration[a] = new int[n];
+            destino[a] = new int[n];
+            vuelo[a] = vs.toArray(new Vuelo[0]);
+            for (int i = 0; i < n; i++) {
+                Vuelo v = vs.get(i);
+                int dep = MinutoSim.delDia(v.getHoraGMTOrigen());
+                int arr = MinutoSim.delDia(v.getHoraGMTDestino());
+                if (arr < dep) arr += MinutoSim.MIN_POR_DIA;
+                depMinute[a][i] = dep;
+                duration[a][i] = arr - dep;
+                destino[a][i] = idxAeropuerto.get(v.getDestino());
+            }
+        }
+    }
+
+    // ---- Aeropuertos ----
+    public int airportCount() { return codigos.length; }
+
+    public int airportIndex(String codigo) {
+        Integer idx = idxAeropuerto.get(codigo);
+        return idx == null ? -1 : idx;
+    }
+
+    public String airportCode(int a) { return codigos[a]; }
+    public Aeropuerto airport(int a) { return aeropuertos[a]; }
+    public VuelosMap getVuelos() { return vuelosMap; }
+
+    // ---- Tabla diaria de salidas ----
+    public int departureCount(int a) { return depMinute[a].length; }
+    public int depMinuteOfDay(int a, int i) { return depMinute[a][i]; }
+    public int duration(int a, int i) { return duration[a][i]; }
+    public int destino(int a, int i) { return destino[a][i]; }
+    public Vuelo vuelo(int a, int i) { return vuelo[a][i]; }
+
+    //Primer índice de la tabla con salida >= minuteOfDay
+    public int firstDeparture(int a, int minuteOfDay) {
+        int[] deps = depMinute[a];
+        int lo = 0, hi = deps.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (deps[mid] < minuteOfDay) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // ---- Capacidad por instancia (vuelo, día) ----
+    private static long key(Vuelo v, int day) {
+        return ((long) v.getId() << 32) | (day & 0xffffffffL);
+    }
+
+    public int used(Vuelo v, int day) {
+        return usedByInstance.getOrDefault(key(v, day), 0);
+    }
+
+    public int residual(Vuelo v, int day) {
+        return Math.max(0, v.getCapacidad() - used(v, day));
+    }
+
+    public void reserve(Vuelo v, int day, int q) {
+        usedByInstance.merge(key(v, day), q, Integer::sum);
+    }
+
+    public void release(Vuelo v, int day, int q) {
+        long k = key(v, day);
+        usedByInstance.merge(k, -q, Integer::sum);
+        if (usedByInstance.getOrDefault(k, 0) <= 0) usedByInstance.remove(k);
+    }
+
+    //Cantidad de instancias que existen explícitamente (las que tienen reserva)
+    public int reservedInstances() {
+        return usedByInstance.size();
+    }
+
+    // ---- Tiempo ----
+    public static int day(int minute) {
+        return MinutoSim.dia(minute);
+    }
+
+    //Minuto de salida absoluto de la entrada i de la tabla en el día day
+    public int depMinute(int a, int i, int day) {
+        return day * MinutoSim.MIN_POR_DIA + depMinute[a][i];
+    }
+
+    public LocalDateTime toDateTime(int minute) {
+        return MinutoSim.aFecha(base, minute);
+    }
+
+    //ID del arco de vuelo con el mismo formato que TEGraph (ej: SPIM@2025-09-07T10:00→SKBO@2025-09-07T13:00)
+    public String arcId(int a, int i, int day) {
+        int dep = depMinute(a, i, day);
+        return codigos[a] + "@" + toDateTime(dep) + "→" + codigos[destino[a][i]] + "@" + toDateTime(dep + duration[a][i]);
+    }
+}
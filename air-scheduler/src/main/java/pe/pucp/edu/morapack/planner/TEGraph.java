@@ -3,6 +3,7 @@ package pe.pucp.edu.morapack.planner;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.IntStream;
 
 import static pe.pucp.edu.morapack.planner.SimulationConfig.SIM_DATE;
 
@@ -11,12 +12,14 @@ public class TEGraph {
         private final String nodeId;
         private final Aeropuerto aeropuerto;
         private final LocalDateTime timestampUTC;
+        private final int minuto; //timestampUTC en minutos desde SIM_DATE (ver MinutoSim)
         private final NodeType nodeType;
 
         public Node(String nodeId, Aeropuerto aeropuerto, LocalDateTime timestampUTC, NodeType nodeType) {
             this.nodeId = nodeId;
             this.aeropuerto = aeropuerto;
             this.timestampUTC = timestampUTC;
+            this.minuto = MinutoSim.piso(timestampUTC);
             this.nodeType = nodeType;
         }
 
@@ -32,6 +35,14 @@ public class TEGraph {
             return timestampUTC;
         }
 
+        public int getMinuto(){
+            return minuto;
+        }
+
+        public NodeType getNodeType(){
+            return nodeType;
+        }
+
         //public String getId() { return aeropuerto.getCodigo() + "@" + timestampUTC; }
     }
 
@@ -41,6 +52,7 @@ public class TEGraph {
         private final int capacity;
         private final Vuelo vuelo;
         private final ArcType arcType;
+        private int index = -1; //ordinal denso dentro del grafo (lo asigna registerArc), para libros con arreglos
 
         public Arc(String arcId, Node from, Node to, int capacity, Vuelo vuelo, ArcType arcType) {
             this.arcId = arcId;
@@ -60,10 +72,20 @@ public class TEGraph {
         public int getCapacity() { return capacity; }
         public Vuelo getVuelo() { return vuelo; }
         public ArcType getArcType() { return arcType; }
+        public int getIndex() { return index; }
     }
 
     private int horizonDays;
 
+    //Para el horizonte deslizante (advanceTo)
+    private AeropuertosMap aeropuertos;
+    private VuelosMap vuelos;
+    private LocalDate nextDay; //primer día aún no materializado
+    private int version; //cambia con cada advanceTo (para invalidar índices armados sobre el grafo)
+
+    //Arcos por ordinal; los huecos que deja evictBefore/spliceEvent se reutilizan
+    private final List<Arc> arcsByIndex = new ArrayList<>();
+    private final ArrayDeque<Integer> indicesLibres = new ArrayDeque<>();
 
     public Map<String, Node> nodesById = new HashMap<>();
     public Map<String, Arc> arcsById = new HashMap<>();
@@ -76,11 +98,23 @@ public class TEGraph {
         build(aeropuertos, vuelos);
     }
 
+    //parallel = true arma el grafo en el pool fork-join común, particionado por aeropuerto; los índices de arco,
+    //los nodos, las listas out y eventsByAirport son los mismos que en la versión serial
+    public TEGraph(AeropuertosMap aeropuertos, VuelosMap vuelos, int horizonDays, boolean parallel){
+        this.horizonDays = Math.max(1, horizonDays);
+        if (parallel) buildParallel(aeropuertos, vuelos);
+        else build(aeropuertos, vuelos);
+    }
+
     public TEGraph(AeropuertosMap aeropuertos, VuelosMap vuelos){
         build(aeropuertos, vuelos);
     }
 
     private void build (AeropuertosMap aeropuertos, VuelosMap vuelos){
+        this.aeropuertos = aeropuertos;
+        this.vuelos = vuelos;
+        this.nextDay = SIM_DATE.plusDays(horizonDays);
+
         Map<String, Aeropuerto> aps = aeropuertos.getAeropuertos();
         Map<String, List<Vuelo>> vuelosPorOrigen = vuelos.getVuelosPorOrigen();
 
@@ -133,8 +167,167 @@ public class TEGraph {
 
     }
 
+    // ---- Construcción paralela ----
+    //Instancia de un vuelo en un día. Su seq es su posición en el recorrido de build() (origen -> vuelo -> día),
+    //que es también el índice de su arco
+    private static class VueloDia {
+        Vuelo vuelo;
+        Aeropuerto origen, destino;
+        LocalDateTime depUTC, arrUTC;
+        String fromId, toId;
+        Particion llega;
+        Node n1, n2;
+    }
+
+    //Partición por aeropuerto: sus nodos, eventos y arcos salientes se arman sin tocar los mapas del grafo
+    private static class Particion {
+        final String iata;
+        int desde, hasta;                  //vuelos que salen de aquí: seq en [desde, hasta)
+        int[] llegadas = new int[0];       //seq de los vuelos que llegan aquí, en orden
+        int nLlegadas;
+        int primera = Integer.MAX_VALUE;   //2*seq (+1 si es llegada) del primer vuelo que lo toca en build()
+        int baseEsperas;                   //índice del primer arco de espera del aeropuerto
+        final Map<String, Node> nodos = new HashMap<>();
+        final TreeSet<LocalDateTime> eventos = new TreeSet<>();
+        final Map<String, List<Arc>> salientes = new HashMap<>();
+
+        Particion(String iata) {
+            this.iata = iata;
+        }
+    }
+
+    //Mismos índices de arco, tipos de nodo, listas out y eventsByAirport que build(): los offsets de cada
+    //partición se calculan antes (seq para los vuelos, conteo de eventos para las esperas) y cada una escribe
+    //en su tramo. Lo único serial es contar llegadas y volcar los buffers en los mapas del grafo.
+    private void buildParallel(AeropuertosMap aeropuertos, VuelosMap vuelos){
+        this.aeropuertos = aeropuertos;
+        this.vuelos = vuelos;
+        this.nextDay = SIM_DATE.plusDays(horizonDays);
+
+        Map<String, Aeropuerto> aps = aeropuertos.getAeropuertos();
+        List<Map.Entry<String, List<Vuelo>>> origenes = new ArrayList<>(vuelos.getVuelosPorOrigen().entrySet());
+        int dias = horizonDays;
+
+        //Offsets: el vuelo i del origen o en el día d tiene seq = inicio[o] + i*dias + d
+        int[] inicio = new int[origenes.size() + 1];
+        for (int o = 0; o < origenes.size(); o++) inicio[o + 1] = inicio[o] + origenes.get(o).getValue().size() * dias;
+        int totalVuelos = inicio[origenes.size()];
+
+        Map<String, Particion> porCodigo = new HashMap<>();
+        for (int o = 0; o < origenes.size(); o++){
+            Particion pa = porCodigo.computeIfAbsent(origenes.get(o).getKey(), Particion::new);
+            pa.desde = inicio[o];
+            pa.hasta = inicio[o + 1];
+            for (Vuelo v : origenes.get(o).getValue()) porCodigo.computeIfAbsent(v.getDestino(), Particion::new);
+        }
+        List<Particion> particiones = new ArrayList<>(porCodigo.values());
+
+        //1. Instancias por (origen, día) en paralelo, cada una en su seq
+        VueloDia[] instancias = new VueloDia[totalVuelos];
+        IntStream.range(0, origenes.size() * dias).parallel().forEach(p -> {
+            int o = p / dias, d = p % dias;
+            Aeropuerto aeropuertoActual = aps.get(origenes.get(o).getKey());
+            List<Vuelo> vs = origenes.get(o).getValue();
+            LocalDate base = SIM_DATE.plusDays(d);
+
+            for (int i = 0; i < vs.size(); i++){
+                Vuelo v = vs.get(i);
+                VueloDia vd = new VueloDia();
+                vd.vuelo = v;
+                vd.origen = aeropuertoActual;
+                vd.destino = aeropuertos.obtener(v.getDestino());
+                vd.depUTC = LocalDateTime.of(base, v.getHoraGMTOrigen());
+                vd.arrUTC = LocalDateTime.of(base, v.getHoraGMTDestino());
+                if (vd.arrUTC.isBefore(vd.depUTC)) vd.arrUTC = vd.arrUTC.plusDays(1);
+                vd.fromId = vd.origen.getCodigo() + "@" + vd.depUTC;
+                vd.toId = vd.destino.getCodigo() + "@" + vd.arrUTC;
+                vd.llega = porCodigo.get(v.getDestino());
+                instancias[inicio[o] + i * dias + d] = vd;
+            }
+        });
+
+        //2. Llegadas por aeropuerto (conteo y reparto en orden de seq)
+        for (VueloDia vd : instancias) vd.llega.nLlegadas++;
+        for (Particion pa : particiones){
+            pa.llegadas = new int[pa.nLlegadas];
+            pa.nLlegadas = 0;
+        }
+        for (int s = 0; s < totalVuelos; s++){
+            Particion pa = instancias[s].llega;
+            pa.llegadas[pa.nLlegadas++] = s;
+        }
+
+        //3. Nodos y eventos por aeropuerto en paralelo. Salidas (2*seq) y llegadas (2*seq+1) se recorren
+        //intercaladas en el orden de build(), así el primero que crea el nodo le fija el mismo tipo
+        particiones.parallelStream().forEach(pa -> {
+            int s = pa.desde, j = 0;
+            while (s < pa.hasta || j < pa.llegadas.length){
+                if (j == pa.llegadas.length || (s < pa.hasta && s <= pa.llegadas[j])){
+                    VueloDia vd = instancias[s++];
+                    vd.n1 = pa.nodos.computeIfAbsent(vd.fromId, id -> new Node(id, vd.origen, vd.depUTC, NodeType.SALIDA));
+                    pa.eventos.add(vd.depUTC);
+                } else {
+                    VueloDia vd = instancias[pa.llegadas[j++]];
+                    vd.n2 = pa.nodos.computeIfAbsent(vd.toId, id -> new Node(id, vd.destino, vd.arrUTC, NodeType.LLEGADA));
+                    pa.eventos.add(vd.arrUTC);
+                }
+            }
+            if (pa.hasta > pa.desde) pa.primera = 2 * pa.desde;
+            if (pa.llegadas.length > 0) pa.primera = Math.min(pa.primera, 2 * pa.llegadas[0] + 1);
+        });
+
+        //eventsByAirport se llena en el orden en que build() toca cada aeropuerto y con computeIfAbsent, como
+        //addEventsByAirport (mismo orden de iteración); las esperas van después de los vuelos, en ese orden
+        particiones.sort(Comparator.comparingInt(pa -> pa.primera));
+        for (Particion pa : particiones) eventsByAirport.computeIfAbsent(pa.iata, k -> pa.eventos);
+        int totalArcos = totalVuelos;
+        for (Map.Entry<String, TreeSet<LocalDateTime>> e : eventsByAirport.entrySet()){
+            Particion pa = porCodigo.get(e.getKey());
+            pa.baseEsperas = totalArcos;
+            if (aps.get(pa.iata) != null && pa.eventos.size() >= 2) totalArcos += pa.eventos.size() - 1;
+        }
+
+        //4. Arcos por aeropuerto en paralelo: los vuelos que salen de él y su cadena de espera
+        Arc[] arcos = new Arc[totalArcos];
+        particiones.parallelStream().forEach(pa -> {
+            for (int s = pa.desde; s < pa.hasta; s++){
+                VueloDia vd = instancias[s];
+                Arc a = newArc(vd.fromId + "→" + vd.toId, vd.n1, vd.n2, vd.vuelo, ArcType.VUELO);
+                a.index = s;
+                arcos[s] = a;
+                pa.salientes.computeIfAbsent(vd.fromId, k -> new ArrayList<>()).add(a);
+            }
+            if (aps.get(pa.iata) == null || pa.eventos.size() < 2) return;
+            int idx = pa.baseEsperas;
+            Node prev = null;
+            for (LocalDateTime t : pa.eventos){
+                Node actual = pa.nodos.get(pa.iata + "@" + t);
+                if (prev != null){
+                    Arc a = newArc(prev.getNodeId() + "→" + actual.getNodeId(), prev, actual, null, ArcType.ESPERA);
+                    a.index = idx;
+                    arcos[idx++] = a;
+                    pa.salientes.computeIfAbsent(prev.getNodeId(), k -> new ArrayList<>()).add(a);
+                }
+                prev = actual;
+            }
+        });
+
+        //5. Merge: los arcos ya traen su índice, solo se vuelcan los buffers
+        arcsByIndex.addAll(Arrays.asList(arcos));
+        arcsById = new HashMap<>(arcos.length * 4 / 3 + 1);
+        for (Arc a : arcos) arcsById.put(a.getArcId(), a);
+        for (Particion pa : particiones){
+            nodesById.putAll(pa.nodos);
+            out.putAll(pa.salientes);
+        }
+    }
+
     private Node getOrCreateNode(Aeropuerto aeropuerto, LocalDateTime tUTC, NodeType nodeType){
         String nodeId = aeropuerto.getCodigo() + "@" + tUTC; //ej: LIM@2025-09-07T10:00
+        return getOrCreateNode(nodeId, aeropuerto, tUTC, nodeType);
+    }
+
+    private Node getOrCreateNode(String nodeId, Aeropuerto aeropuerto, LocalDateTime tUTC, NodeType nodeType){
         Node existing = nodesById.get(nodeId);
         if (existing != null) return existing;
 
@@ -143,16 +336,44 @@ public class TEGraph {
         return created;
     }
 
-    private void addArc(Node n1, Node n2, Vuelo v, ArcType arcType){
+    private Arc addArc(Node n1, Node n2, Vuelo v, ArcType arcType){
         String fromId = n1.aeropuerto.getCodigo() + "@" + n1.timestampUTC;
         String toId   = n2.aeropuerto.getCodigo() + "@" + n2.timestampUTC;
-        String arcId = fromId + "→" + toId;
+        return registerArc(newArc(fromId + "→" + toId, n1, n2, v, arcType));
+    }
+
+    private Arc newArc(String arcId, Node n1, Node n2, Vuelo v, ArcType arcType){
         int capacidad = (v != null ? v.getCapacidad() : Math.max(1, n1.aeropuerto.getCapacidad()));
+        return new Arc(arcId, n1, n2, capacidad, v, arcType);
+    }
 
-        Arc arc = new Arc(arcId, n1, n2, capacidad, v, arcType);
+    private Arc registerArc(Arc arc){
+        if (indicesLibres.isEmpty()){
+            arc.index = arcsByIndex.size();
+            arcsByIndex.add(arc);
+        } else {
+            arc.index = indicesLibres.pop();
+            arcsByIndex.set(arc.index, arc);
+        }
+        arcsById.put(arc.getArcId(), arc);
+        out.computeIfAbsent(arc.getFrom().getNodeId(), k -> new ArrayList<>()).add(arc);
+        return arc;
+    }
 
-        arcsById.put(arcId, arc);
-        out.computeIfAbsent(fromId, k -> new ArrayList<>()).add(arc);
+    private void unregisterArc(Arc arc){
+        arcsById.remove(arc.getArcId());
+        arcsByIndex.set(arc.index, null);
+        indicesLibres.push(arc.index);
+    }
+
+    //Arco con ese ordinal, o null si el hueco está libre
+    public Arc arcByIndex(int index){
+        return arcsByIndex.get(index);
+    }
+
+    //Cota superior de los ordinales en uso (tamaño de los arreglos indexados por arco)
+    public int arcIndexBound(){
+        return arcsByIndex.size();
     }
 
     private void addEventsByAirport(String origen, String destino, LocalDateTime depUTC, LocalDateTime arrUTC){
@@ -160,6 +381,126 @@ public class TEGraph {
         eventsByAirport.computeIfAbsent(destino,s -> new TreeSet<>()).add(arrUTC);
     }
 
+    // ---- Horizonte deslizante ----
+    //Mueve la ventana del grafo a [t, t + horizonDays): materializa los días que faltan al final
+    //y elimina los nodos/arcos que ya quedaron en el pasado.
+    public void advanceTo(LocalDateTime t){
+        advanceTo(t, null);
+    }
+
+    //Igual que advanceTo(t), pero además mantiene el CapacityBook: las reservas de arcos eliminados
+    //se descartan y las de esperas partidas al insertar eventos nuevos se copian a los dos tramos
+    //(si el CapacityBook lleva WarehouseBook, las esperas se reubican al final con rebuild).
+    public void advanceTo(LocalDateTime t, CapacityBook capBook){
+        LocalDate hasta = t.toLocalDate().plusDays(horizonDays);
+        while (nextDay.isBefore(hasta)){
+            addDay(nextDay, capBook);
+            nextDay = nextDay.plusDays(1);
+        }
+        evictBefore(t, capBook);
+        if (capBook != null && capBook.getAlmacen() != null) capBook.getAlmacen().rebuild(this);
+        version++;
+    }
+
+    public int getVersion(){
+        return version;
+    }
+
+    public AeropuertosMap getAeropuertos(){
+        return aeropuertos;
+    }
+
+    public VuelosMap getVuelos(){
+        return vuelos;
+    }
+
+    private void addDay(LocalDate base, CapacityBook capBook){
+        Map<String, Aeropuerto> aps = aeropuertos.getAeropuertos();
+
+        for (Map.Entry<String, List<Vuelo>> vs: vuelos.getVuelosPorOrigen().entrySet()){
+            Aeropuerto aeropuertoActual = aps.get(vs.getKey());
+            for (Vuelo v: vs.getValue()){
+                Aeropuerto aeropuertoDestino = aeropuertos.obtener(v.getDestino());
+
+                LocalDateTime depUTC = LocalDateTime.of(base, v.getHoraGMTOrigen());
+                LocalDateTime arrUTC = LocalDateTime.of(base, v.getHoraGMTDestino());
+                if (arrUTC.isBefore(depUTC)) arrUTC = arrUTC.plusDays(1);
+
+                Node n1 = getOrCreateNode(aeropuertoActual, depUTC, NodeType.SALIDA);
+                Node n2 = getOrCreateNode(aeropuertoDestino, arrUTC, NodeType.LLEGADA);
+
+                addArc(n1, n2, v, ArcType.VUELO);
+                spliceEvent(aeropuertoActual, depUTC, capBook);
+                spliceEvent(aeropuertoDestino, arrUTC, capBook);
+            }
+        }
+    }
+
+    //Inserta un evento en la cadena de esperas del aeropuerto: la espera prev→next se parte en prev→t y t→next
+    private void spliceEvent(Aeropuerto aeropuerto, LocalDateTime t, CapacityBook capBook){
+        if (capBook != null && capBook.getAlmacen() != null) capBook = null; //el almacén se rearma en advanceTo
+        String iata = aeropuerto.getCodigo();
+        TreeSet<LocalDateTime> eventos = eventsByAirport.computeIfAbsent(iata, s -> new TreeSet<>());
+        if (!eventos.add(t)) return; //ya existía: la cadena no cambia
+        if (aeropuertos.obtener(iata) == null) return;
+
+        LocalDateTime prev = eventos.lower(t);
+        LocalDateTime next = eventos.higher(t);
+        Node actual = nodesById.get(iata + "@" + t);
+
+        int usadoPrevio = 0;
+        if (prev != null && next != null){
+            String prevId = iata + "@" + prev;
+            Arc viejo = arcsById.get(prevId + "→" + iata + "@" + next);
+            if (viejo != null){
+                out.get(prevId).remove(viejo);
+                if (capBook != null){
+                    usadoPrevio = capBook.used(viejo);
+                    capBook.evict(viejo);
+                }
+                unregisterArc(viejo);
+            }
+        }
+        if (prev != null){
+            Arc a = addArc(nodesById.get(iata + "@" + prev), actual, null, ArcType.ESPERA);
+            if (capBook != null && usadoPrevio > 0) capBook.reserve(a, usadoPrevio);
+        }
+        if (next != null){
+            Arc a = addArc(actual, nodesById.get(iata + "@" + next), null, ArcType.ESPERA);
+            if (capBook != null && usadoPrevio > 0) capBook.reserve(a, usadoPrevio);
+        }
+    }
+
+    //Elimina los arcos que terminan antes de t y los nodos anteriores a t que se quedan sin arcos salientes.
+    //Un nodo pasado con un vuelo aún en el aire (o con la espera que cruza t) se conserva hasta el siguiente avance.
+    private void evictBefore(LocalDateTime t, CapacityBook capBook){
+        int tMin = MinutoSim.techo(t); //los nodos caen en minutos exactos: antes de t <=> minuto < techo(t)
+        for (Map.Entry<String, TreeSet<LocalDateTime>> e : eventsByAirport.entrySet()){
+            String iata = e.getKey();
+            Iterator<LocalDateTime> it = e.getValue().iterator();
+            while (it.hasNext()){
+                LocalDateTime ev = it.next();
+                if (!ev.isBefore(t)) break;
+
+                String nodeId = iata + "@" + ev;
+                List<Arc> salientes = out.get(nodeId);
+                if (salientes != null){
+                    salientes.removeIf(a -> {
+                        if (a.getTo().getMinuto() >= tMin) return false;
+                        if (capBook != null) capBook.evict(a);
+                        unregisterArc(a);
+                        return true;
+                    });
+                }
+                if (salientes == null || salientes.isEmpty()){
+                    out.remove(nodeId);
+                    nodesById.remove(nodeId);
+                    it.remove();
+                }
+            }
+        }
+    }
+
     //CÓDIGO PARA HACER LAS PRUEBAS:
     // ---- Helpers de inspección (para pruebas) ----
     public List<Arc> getOutgoing(String nodeId) {
@@ -0,0 +1,99 @@
+package pe.pucp.edu.morapack.planner;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Cotas inferiores entre aeropuertos armadas con el plan de vuelos (VuelosMap), sin mirar horarios
+//ni capacidad: el mínimo de vuelos para ir de a a b y, para cada cantidad de vuelos permitida, el
+//menor tiempo de viaje (suma de duraciones + escala mínima entre tramos). Como cualquier ruta real
+//tarda al menos eso, son admisibles para podar: si desde a en el minuto t ni así se llega antes de la
+//llegada máxima, la etiqueta (o el pedido entero) no tiene salida.
+//Los índices de aeropuerto son los del arreglo de códigos con que se arma (los del índice de búsqueda).
+final class TravelTimeBounds {
+    static final int INALCANZABLE = Integer.MAX_VALUE;
+
+    private final int[][] minSaltos;   //[a][b]
+    private final int[][][] minTiempo; //[vuelos][a][b]
+
+    TravelTimeBounds(VuelosMap vuelos, String[] codigos, int maxVuelos, int minLayover) {
+        int A = codigos.length;
+        Map<String, Integer> idx = new HashMap<>();
+        for (int a = 0; a < A; a++) idx.put(codigos[a], a);
+
+        //Tramo directo más corto por par de aeropuertos
+        int[][] directo = new int[A][A];
+        for (int[] fila : directo) Arrays.fill(fila, INALCANZABLE);
+        for (Map.Entry<String, List<Vuelo>> e : vuelos.getVuelosPorOrigen().entrySet()) {
+            Integer a = idx.get(e.getKey());
+            if (a == null) continue;
+            for (Vuelo v : e.getValue()) {
+                Integer b = idx.get(v.getDestino());
+                if (b == null || b.equals(a)) continue;
+                int dep = MinutoSim.delDia(v.getHoraGMTOrigen());
+                int arr = MinutoSim.delDia(v.getHoraGMTDestino());
+                if (arr < dep) arr += MinutoSim.MIN_POR_DIA;
+                directo[a][b] = Math.min(directo[a][b], arr - dep);
+            }
+        }
+
+        //minTiempo[r][a][b]: con a lo sumo r vuelos (r = 0 solo llega a sí mismo)
+        minTiempo = new int[maxVuelos + 1][A][A];
+        for (int a = 0; a < A; a++) {
+            Arrays.fill(minTiempo[0][a], INALCANZABLE);
+            minTiempo[0][a][a] = 0;
+        }
+        for (int r = 1; r <= maxVuelos; r++) {
+            int[][] prev = minTiempo[r - 1];
+            int[][] cur = minTiempo[r];
+            for (int a = 0; a < A; a++) {
+                System.arraycopy(prev[a], 0, cur[a], 0, A);
+                for (int c = 0; c < A; c++) {
+                    int d = directo[a][c];
+                    if (d == INALCANZABLE) continue;
+                    for (int b = 0; b < A; b++) {
+                        int resto = prev[c][b];
+                        if (resto == INALCANZABLE) continue;
+                        int total = (c == b) ? d : d + minLayover + resto;
+                        if (total < cur[a][b]) cur[a][b] = total;
+                    }
+                }
+            }
+        }
+
+        minSaltos = new int[A][A];
+        for (int a = 0; a < A; a++) {
+            for (int b = 0; b < A; b++) {
+                int s = INALCANZABLE;
+                for (int r = 0; r <= maxVuelos && s == INALCANZABLE; r++) {
+                    if (minTiempo[r][a][b] != INALCANZABLE) s = r;
+                }
+                minSaltos[a][b] = s;
+            }
+        }
+    }
+
+    //Mínimo de vuelos de a a b (hasta el máximo con que se armó), o INALCANZABLE
+    int minSaltos(int a, int b) {
+        return minSaltos[a][b];
+    }
+
+    //Menor tiempo de viaje de a a b usando a lo sumo vuelos vuelos, o INALCANZABLE
+    int minTiempo(int a, int b, int vuelos) {
+        if (vuelos < 0) return INALCANZABLE;
+        return minTiempo[Math.min(vuelos, minTiempo.length - 1)][a][b];
+    }
+
+    //Última salida desde a con la que todavía se podría llegar a b antes de deadline, o Integer.MIN_VALUE
+    int ultimaSalida(int a, int b, int vuelos, int deadline) {
+        int m = minTiempo(a, b, vuelos);
+        return (m == INALCANZABLE) ? Integer.MIN_VALUE : deadline - m;
+    }
+
+    //¿Saliendo de a desde el minuto t, con a lo sumo vuelos vuelos, se puede llegar a b antes de deadline?
+    boolean alcanza(int a, int b, int t, int vuelos, int deadline) {
+        if (minSaltos[a][b] > vuelos) return false;
+        return t <= ultimaSalida(a, b, vuelos, deadline);
+    }
+}
@@ -0,0 +1,228 @@
+package pe.pucp.edu.morapack.planner;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+//Ocupación de almacén por aeropuerto.
+//En el TEGraph el almacén son las esperas entre eventos consecutivos (segmento i = evento i -> evento i+1);
+//aquí cada aeropuerto guarda un segment tree sobre esos segmentos con suma por rango y máximo por rango.
+//Así una estadía de varias horas se reserva con una sola operación O(log n) y el residual de almacén
+//en una ventana [desde, hasta) sale de una sola consulta, en lugar de recorrer arco por arco.
+public final class WarehouseBook {
+
+    private static class Almacen {
+        final int capacidad;
+        final int[] eventMin; //minutos (MinutoSim) de los eventos del aeropuerto, ordenados
+        final int n;          //cantidad de segmentos = eventos - 1
+        final int[] max;      //máximo del rango del nodo (ya incluye su lazy)
+        final int[] lazy;     //suma pendiente para los hijos
+
+        Almacen(int capacidad, int[] eventMin, int[] valores) {
+            this.capacidad = capacidad;
+            this.eventMin = eventMin;
+            this.n = Math.max(0, eventMin.length - 1);
+            this.max = new int[Math.max(1, 4 * n)];
+            this.lazy = new int[Math.max(1, 4 * n)];
+            if (n > 0) build(1, 0, n - 1, valores);
+        }
+
+        //Copia independiente (los eventos no cambian, se comparten)
+        Almacen(Almacen otro) {
+            this.capacidad = otro.capacidad;
+            this.eventMin = otro.eventMin;
+            this.n = otro.n;
+            this.max = otro.max.clone();
+            this.lazy = otro.lazy.clone();
+        }
+
+        private void build(int nodo, int l, int r, int[] valores) {
+            if (l == r) {
+                max[nodo] = valores == null ? 0 : valores[l];
+                return;
+            }
+            int m = (l + r) >>> 1;
+            build(2 * nodo, l, m, valores);
+            build(2 * nodo + 1, m + 1, r, valores);
+            max[nodo] = Math.max(max[2 * nodo], max[2 * nodo + 1]);
+        }
+
+        void add(int i, int j, int q) {
+            if (i <= j && n > 0) add(1, 0, n - 1, i, j, q);
+        }
+
+        private void add(int nodo, int l, int r, int i, int j, int q) {
+            if (j < l || r < i) return;
+            if (i <= l && r <= j) {
+                max[nodo] += q;
+                lazy[nodo] += q;
+                return;
+            }
+            int m = (l + r) >>> 1;
+            add(2 * nodo, l, m, i, j, q);
+            add(2 * nodo + 1, m + 1, r, i, j, q);
+            max[nodo] = Math.max(max[2 * nodo], max[2 * nodo + 1]) + lazy[nodo];
+        }
+
+        int max(int i, int j) {
+            if (i > j || n == 0) return 0;
+            return max(1, 0, n - 1, i, j);
+        }
+
+        private int max(int nodo, int l, int r, int i, int j) {
+            if (i <= l && r <= j) return max[nodo];
+            int m = (l + r) >>> 1;
+            int res = Integer.MIN_VALUE;
+            if (i <= m) res = Math.max(res, max(2 * nodo, l, m, i, j));
+            if (j > m) res = Math.max(res, max(2 * nodo + 1, m + 1, r, i, j));
+            return res + lazy[nodo];
+        }
+
+        //Ocupación de todos los segmentos en O(n)
+        int[] valores() {
+            int[] out = new int[n];
+            if (n > 0) valores(1, 0, n - 1, 0, out);
+            return out;
+        }
+
+        private void valores(int nodo, int l, int r, int acum, int[] out) {
+            if (l == r) {
+                out[l] = max[nodo] + acum;
+                return;
+            }
+            int m = (l + r) >>> 1;
+            valores(2 * nodo, l, m, acum + lazy[nodo], out);
+            valores(2 * nodo + 1, m + 1, r, acum + lazy[nodo], out);
+        }
+
+        //Segmento que empieza exactamente en el minuto dado, o -1
+        int segmento(int minuto) {
+            int i = Arrays.binarySearch(eventMin, minuto);
+            return (i >= 0 && i < n) ? i : -1;
+        }
+
+        //Primer evento con minuto >= minuto
+        int ceiling(int minuto) {
+            int lo = 0, hi = eventMin.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (eventMin[mid] < minuto) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        //Ocupación en el instante minuto (segmento que lo contiene), 0 fuera de la cadena
+        int usadoEn(int minuto) {
+            int i = ceiling(minuto + 1) - 1; //último evento <= minuto
+            return (i >= 0 && i < n) ? max(i, i) : 0;
+        }
+    }
+
+    private Map<String, Almacen> porAeropuerto = new HashMap<>();
+
+    public WarehouseBook(TEGraph g) {
+        rebuild(g);
+    }
+
+    private WarehouseBook() {
+    }
+
+    //Copia independiente de las ocupaciones (para CapacityBook.snapshot)
+    public WarehouseBook copia() {
+        WarehouseBook c = new WarehouseBook();
+        for (Map.Entry<String, Almacen> e : porAeropuerto.entrySet()) c.porAeropuerto.put(e.getKey(), new Almacen(e.getValue()));
+        return c;
+    }
+
+    //Vuelve a armar los árboles con los eventos actuales del grafo (después de advanceTo).
+    //Cada segmento nuevo hereda la ocupación del segmento viejo que lo contenía (igual que al partir
+    //una espera en TEGraph.spliceEvent) y lo que quedó antes del primer evento se descarta.
+    public void rebuild(TEGraph g) {
+        Map<String, Almacen> nuevo = new HashMap<>();
+        for (Map.Entry<String, TreeSet<LocalDateTime>> e : g.eventsByAirport.entrySet()) {
+            Aeropuerto ap = g.getAeropuertos().obtener(e.getKey());
+            if (ap == null) continue;
+
+            int[] eventMin = new int[e.getValue().size()];
+            int i = 0;
+            for (LocalDateTime t : e.getValue()) eventMin[i++] = MinutoSim.piso(t);
+
+            Almacen viejo = porAeropuerto.get(e.getKey());
+            int[] valores = null;
+            if (viejo != null && eventMin.length > 1) {
+                valores = new int[eventMin.length - 1];
+                int[] previos = viejo.valores();
+                for (int s = 0; s < valores.length; s++) {
+                    int k = viejo.ceiling(eventMin[s] + 1) - 1;
+                    valores[s] = (k >= 0 && k < viejo.n) ? previos[k] : 0;
+                }
+            }
+            nuevo.put(e.getKey(), new Almacen(Math.max(1, ap.getCapacidad()), eventMin, valores));
+        }
+        porAeropuerto = nuevo;
+    }
+
+    public boolean contiene(String iata) {
+        return porAeropuerto.containsKey(iata);
+    }
+
+    public int capacidad(String iata) {
+        Almacen a = porAeropuerto.get(iata);
+        return a == null ? 0 : a.capacidad;
+    }
+
+    // ---- Estadías: [desdeMin, hastaMin) sobre eventos del aeropuerto ----
+    public void reserveStay(String iata, int desdeMin, int hastaMin, int q) {
+        Almacen a = porAeropuerto.get(iata);
+        if (a == null || hastaMin <= desdeMin) return;
+        a.add(a.ceiling(desdeMin), a.ceiling(hastaMin) - 1, q);
+    }
+
+    public void releaseStay(String iata, int desdeMin, int hastaMin, int q) {
+        reserveStay(iata, desdeMin, hastaMin, -q);
+    }
+
+    //Máxima ocupación en la ventana
+    public int usedMax(String iata, int desdeMin, int hastaMin) {
+        Almacen a = porAeropuerto.get(iata);
+        if (a == null || hastaMin <= desdeMin) return 0;
+        return a.max(a.ceiling(desdeMin), a.ceiling(hastaMin) - 1);
+    }
+
+    //Residual de almacén en la ventana (lo que cabe durante toda la estadía)
+    public int residual(String iata, int desdeMin, int hastaMin) {
+        Almacen a = porAeropuerto.get(iata);
+        if (a == null) return 0;
+        return Math.max(0, a.capacidad - usedMax(iata, desdeMin, hastaMin));
+    }
+
+    public int usedAt(String iata, int minuto) {
+        Almacen a = porAeropuerto.get(iata);
+        return a == null ? 0 : a.usadoEn(minuto);
+    }
+
+    //Ocupación de cada segmento del aeropuerto (para reportes), alineada con eventsByAirport
+    public int[] ocupacion(String iata) {
+        Almacen a = porAeropuerto.get(iata);
+        return a == null ? new int[0] : a.valores();
+    }
+
+    // ---- Por arco de espera ----
+    //Devuelve false si el arco no corresponde a un segmento de la cadena actual
+    boolean cubre(TEGraph.Arc espera) {
+        Almacen a = porAeropuerto.get(espera.getFrom().getAeropuerto().getCodigo());
+        return a != null && a.segmento(espera.getFrom().getMinuto()) >= 0;
+    }
+
+    public int used(TEGraph.Arc espera) {
+        Almacen a = porAeropuerto.get(espera.getFrom().getAeropuerto().getCodigo());
+        if (a == null) return 0;
+        int i = a.segmento(espera.getFrom().getMinuto());
+        return i < 0 ? 0 : a.max(i, i);
+    }
+
+    public void reserve(TEGraph.Arc espera, int q) {
+        reserveStay(espera.getFrom().getAeropuerto().getCodigo(),
+                espera.getFrom().getMinuto(), espera.getTo().getMinuto(), q);
+    }
+}
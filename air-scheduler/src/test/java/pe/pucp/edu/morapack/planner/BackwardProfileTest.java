@@ -0,0 +1,95 @@
+package pe.pucp.edu.morapack.planner;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//BackwardProfile y la extracción guiada: la cota nunca pasa a una ruta real y, con o sin vuelos llenos,
+//la búsqueda guiada da una mejor ruta igual de buena que la búsqueda hacia adelante sin perfil
+class BackwardProfileTest {
+    private static final List<String> ORIGENES = List.of("SPIM", "EBCI", "UBBB");
+    private static final int K = 5;
+
+    private static AeropuertosMap aeropuertos;
+    private static List<Pedido> pedidos;
+    private static TEGraph g;
+
+    @BeforeAll
+    static void cargar() {
+        aeropuertos = new AeropuertosMap();
+        aeropuertos.leerDatos(ArchivoUtils.getScannerFromResource("c.1inf54.25.2.Aeropuerto.husos.v1.20250818__estudiantes.txt"));
+        VuelosMap vuelos = new VuelosMap(aeropuertos);
+        vuelos.leerDatos(ArchivoUtils.getScannerFromResource("c.1inf54.25.2.planes_vuelo.v4.20250818.txt"));
+        CargarPedidos cp = new CargarPedidos();
+        cp.leerDatos(ArchivoUtils.getScannerFromResource("pedidos.txt"));
+        pedidos = new ArrayList<>(cp.getColaPedidos()).subList(0, 40);
+        g = new TEGraph(aeropuertos, vuelos, 3);
+    }
+
+    private static boolean domina(CandidateRoute a, CandidateRoute b) {
+        return a.arrMin <= b.arrMin && a.hops <= b.hops && a.minResidual >= b.minResidual;
+    }
+
+    @Test
+    void laLlegadaMinimaNoPasaANingunaRutaEncontrada() {
+        DepartureIndex idx = new DepartureIndex(g);
+        RoutePlanner planner = new RoutePlanner(g, aeropuertos, new SLAService(), new CapacityBook(new WarehouseBook(g)));
+        Map<String, BackwardProfile> perfiles = new HashMap<>();
+        int tramos = 0;
+        for (Pedido p : pedidos) {
+            int dst = idx.airportIndex(p.getDestino());
+            BackwardProfile perfil = perfiles.computeIfAbsent(p.getDestino(),
+                    d -> new BackwardProfile(idx, dst, RoutePlanner.MAX_ESCALAS, RoutePlanner.MIN_LAYOVER_MIN));
+            for (String o : ORIGENES) {
+                for (CandidateRoute c : planner.generarCandidatas(p, o, K)) {
+                    //Desde cada salida de vuelo de la ruta, con los vuelos que le quedan
+                    int restantes = c.hops;
+                    for (String id : c.arcIds) {
+                        TEGraph.Arc a = g.arcsById.get(id);
+                        if (a.getArcType() != ArcType.VUELO) continue;
+                        int desde = idx.airportIndex(a.getFrom().getAeropuerto().getCodigo());
+                        assertTrue(perfil.llegadaMinima(desde, a.getFrom().getMinuto(), restantes) <= c.arrMin, id);
+                        restantes--;
+                        tramos++;
+                    }
+                }
+            }
+        }
+        assertTrue(tramos > 0);
+    }
+
+    @Test
+    void conYSinPerfilDanUnaMejorRutaIgualAunConLosVuelosLlenos() {
+        CapacityBook book = new CapacityBook(new WarehouseBook(g));
+        RoutePlanner guiado = new RoutePlanner(g, aeropuertos, new SLAService(), book);
+        RoutePlanner haciaAdelante = new RoutePlanner(g, aeropuertos, new SLAService(), book);
+        haciaAdelante.setGuiadaPorPerfil(false);
+
+        for (int vuelta = 0; vuelta < 2; vuelta++) {
+            Set<TEGraph.Arc> llenos = new HashSet<>();
+            for (Pedido p : pedidos) {
+                for (String o : ORIGENES) {
+                    List<CandidateRoute> a = guiado.generarCandidatas(p, o, K);
+                    List<CandidateRoute> b = haciaAdelante.generarCandidatas(p, o, K);
+                    assertEquals(b.size(), a.size(), "pedido " + p.getIdPedido() + " desde " + o);
+                    if (b.isEmpty()) continue;
+                    //La primera puede ser otro camino, pero con la misma llegada, escalas y residual
+                    assertTrue(domina(a.get(0), b.get(0)) && domina(b.get(0), a.get(0)), "pedido " + p.getIdPedido() + " desde " + o);
+                    //Lo que la búsqueda hacia adelante devuelve de más lo domina alguna ruta guiada
+                    for (CandidateRoute x : b) {
+                        if (a.stream().noneMatch(y -> y.arcIds.equals(x.arcIds))) {
+                            assertTrue(a.stream().anyMatch(y -> domina(y, x)), x.arcIds.toString());
+                        }
+                    }
+                    if (vuelta == 0) b.get(0).arcIds.stream().map(g.arcsById::get)
+                            .filter(x -> x.getArcType() == ArcType.VUELO).findFirst().ifPresent(llenos::add);
+                }
+            }
+            //Segunda vuelta: se llena el primer vuelo de cada mejor ruta y la guía tiene que abrirse a otras
+            for (TEGraph.Arc v : llenos) book.reserve(v, book.residual(v));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package pe.pucp.edu.morapack.planner;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//La cola por casilleros saca en el mismo orden (t, hops, -minResidual) que el heap
+class BucketLabelQueueTest {
+    private static final int MAX_HOPS = 3;
+
+    private static int[] clave(LabelPool pool, int l) {
+        return new int[]{pool.t[l], pool.hops[l], pool.minResidual[l]};
+    }
+
+    @Test
+    void empatesCompletosSalenEnOrdenDeLlegada() {
+        LabelPool pool = new LabelPool();
+        LabelQueue cola = pool.usarCasilleros(0, 100, MAX_HOPS);
+        int a = pool.nueva(0, 0, 10, 1, 5);
+        int b = pool.nueva(1, 0, 10, 1, 5);
+        int c = pool.nueva(2, 0, 10, 1, 7);
+        int d = pool.nueva(3, 0, 10, 0, 1);
+        cola.push(a);
+        cola.push(b);
+        cola.push(c);
+        cola.push(d);
+        assertEquals(d, cola.poll()); //menos escalas
+        assertEquals(c, cola.poll()); //más residual
+        assertEquals(a, cola.poll());
+        assertEquals(b, cola.poll());
+        assertTrue(cola.isEmpty());
+    }
+
+    @Test
+    void fueraDelRangoNoSeEncolaYLasEscalasDeMasVanAlUltimoCasillero() {
+        LabelPool pool = new LabelPool();
+        LabelQueue cola = pool.usarCasilleros(50, 60, MAX_HOPS);
+        cola.push(pool.nueva(0, 0, 49, 0, 1));
+        cola.push(pool.nueva(0, 0, 61, 0, 1));
+        assertTrue(cola.isEmpty());
+
+        int muchas = pool.nueva(0, 0, 55, MAX_HOPS + 2, 9);
+        int tres = pool.nueva(0, 0, 55, MAX_HOPS, 1);
+        cola.push(muchas);
+        cola.push(tres);
+        assertEquals(muchas, cola.poll());
+        assertEquals(tres, cola.poll());
+    }
+
+    //Búsqueda monótona simulada: cada etiqueta que sale encola hijas con t >= el suyo
+    @Test
+    void mismoOrdenQueElHeapEnBusquedasMonotonas() {
+        Random r = new Random(5);
+        for (int caso = 0; caso < 200; caso++) {
+            int desde = r.nextInt(1000), hasta = desde + 300;
+            long semilla = r.nextLong();
+            List<int[]> porHeap = simular(new LabelPool(), false, desde, hasta, semilla);
+            List<int[]> porCasilleros = simular(new LabelPool(), true, desde, hasta, semilla);
+            assertEquals(porHeap.size(), porCasilleros.size());
+            for (int i = 0; i < porHeap.size(); i++) {
+                assertArrayEquals(porHeap.get(i), porCasilleros.get(i), "caso " + caso + ", salida " + i);
+            }
+        }
+    }
+
+    //Las hijas dependen solo de la clave de la madre, así los dos recorridos generan las mismas etiquetas
+    private static List<int[]> simular(LabelPool pool, boolean casilleros, int desde, int hasta, long semilla) {
+        LabelQueue cola = casilleros ? pool.usarCasilleros(desde, hasta, MAX_HOPS) : pool.usarHeap();
+        Random r = new Random(semilla);
+        for (int i = 0; i < 5; i++) cola.push(pool.nueva(0, 0, desde + r.nextInt(20), 0, r.nextInt(5)));
+
+        List<int[]> salida = new ArrayList<>();
+        while (!cola.isEmpty() && salida.size() < 2000) {
+            int l = cola.poll();
+            int[] k = clave(pool, l);
+            salida.add(k);
+            Random hijas = new Random(semilla ^ (k[0] * 31L + k[1]) * 31 + k[2]);
+            int n = k[1] < MAX_HOPS ? hijas.nextInt(3) : 0;
+            for (int i = 0; i < n; i++) {
+                int t = k[0] + hijas.nextInt(40);
+                if (t > hasta) continue; //el heap no filtra el rango: se hace aquí, como la búsqueda
+                cola.push(pool.nueva(0, 0, t, k[1] + 1, hijas.nextInt(6)));
+            }
+        }
+        return salida;
+    }
+}
@@ -0,0 +1,68 @@
+package pe.pucp.edu.morapack.planner;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//RoutePlanner.generarCandidatasDiversas: maxUsos es un límite duro y el resultado no depende del paralelo
+class CandidatasDiversasTest {
+    private static final List<String> ORIGENES = List.of("SPIM", "EBCI", "UBBB");
+
+    private static AeropuertosMap aeropuertos;
+    private static List<Pedido> pedidos;
+    private static TEGraph g;
+    private static CapacityBook book;
+
+    @BeforeAll
+    static void cargar() {
+        aeropuertos = new AeropuertosMap();
+        aeropuertos.leerDatos(ArchivoUtils.getScannerFromResource("c.1inf54.25.2.Aeropuerto.husos.v1.20250818__estudiantes.txt"));
+        VuelosMap vuelos = new VuelosMap(aeropuertos);
+        vuelos.leerDatos(ArchivoUtils.getScannerFromResource("c.1inf54.25.2.planes_vuelo.v4.20250818.txt"));
+        CargarPedidos cp = new CargarPedidos();
+        cp.leerDatos(ArchivoUtils.getScannerFromResource("pedidos.txt"));
+        pedidos = new ArrayList<>(cp.getColaPedidos()).subList(0, 40);
+        g = new TEGraph(aeropuertos, vuelos, 3);
+        book = new CapacityBook(new WarehouseBook(g));
+    }
+
+    @Test
+    void ningunVueloApareceEnMasDeMaxUsosCandidatas() {
+        RoutePlanner planner = new RoutePlanner(g, aeropuertos, new SLAService(), book);
+        int menosDeK = 0;
+        for (int maxUsos : new int[]{1, 2}) {
+            for (Pedido p : pedidos) {
+                List<CandidateRoute> cand = planner.generarCandidatasDiversas(p, ORIGENES, 6, maxUsos);
+                assertTrue(cand.size() <= 6);
+                if (cand.size() < 6) menosDeK++;
+                Map<String, Integer> usos = new HashMap<>();
+                for (CandidateRoute c : cand) {
+                    for (String id : c.arcIds) {
+                        if (g.arcsById.get(id).getArcType() == ArcType.VUELO) usos.merge(id, 1, Integer::sum);
+                    }
+                }
+                for (Map.Entry<String, Integer> u : usos.entrySet()) {
+                    assertTrue(u.getValue() <= maxUsos, "pedido " + p.getIdPedido() + ": " + u.getKey() + " en " + u.getValue() + " candidatas");
+                }
+            }
+        }
+        assertTrue(menosDeK > 0, "sin relleno: algún pedido se queda con menos de k");
+    }
+
+    @Test
+    void enParaleloDaLoMismoQueEnSerie() {
+        RoutePlanner serie = new RoutePlanner(g, aeropuertos, new SLAService(), book);
+        RoutePlanner paralelo = new RoutePlanner(g, aeropuertos, new SLAService(), book);
+        paralelo.setParalelo(new ForkJoinPool(3));
+        for (Pedido p : pedidos) {
+            List<CandidateRoute> a = serie.generarCandidatasDiversas(p, ORIGENES, 4, 1);
+            List<CandidateRoute> b = paralelo.generarCandidatasDiversas(p, ORIGENES, 4, 1);
+            assertEquals(a.size(), b.size());
+            for (int i = 0; i < a.size(); i++) assertEquals(a.get(i).arcIds, b.get(i).arcIds);
+        }
+    }
+}
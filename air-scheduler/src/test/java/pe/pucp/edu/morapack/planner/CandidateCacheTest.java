@@ -0,0 +1,76 @@
+package pe.pucp.edu.morapack.planner;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//CandidateCache: invalidación por el mayor minResidual de cada arco y reservas hechas durante la búsqueda
+class CandidateCacheTest {
+    private static AeropuertosMap aeropuertos;
+    private static VuelosMap vuelos;
+
+    @BeforeAll
+    static void cargar() {
+        aeropuertos = new AeropuertosMap();
+        aeropuertos.leerDatos(ArchivoUtils.getScannerFromResource("c.1inf54.25.2.Aeropuerto.husos.v1.20250818__estudiantes.txt"));
+        vuelos = new VuelosMap(aeropuertos);
+        vuelos.leerDatos(ArchivoUtils.getScannerFromResource("c.1inf54.25.2.planes_vuelo.v4.20250818.txt"));
+    }
+
+    private TEGraph g;
+    private CapacityBook book;
+    private CandidateCache cache;
+    private TEGraph.Arc vuelo;
+    private final CandidateCache.Clave clave = new CandidateCache.Clave(0, 1, 0, 0, 1, 3);
+
+    @BeforeEach
+    void armar() {
+        g = new TEGraph(aeropuertos, vuelos, 1);
+        book = new CapacityBook(new WarehouseBook(g));
+        cache = new CandidateCache(16);
+        cache.conectar(book);
+        vuelo = g.arcsById.values().stream().filter(a -> a.getArcType() == ArcType.VUELO).findFirst().orElseThrow();
+    }
+
+    private CandidateRoute ruta(int minResidual) {
+        return new CandidateRoute(1, List.of(vuelo.getArcId()), 0, 0, 0, 1, minResidual);
+    }
+
+    @Test
+    void reservaPorDebajoDeCualquierCandidataInvalida() {
+        int cap = vuelo.getCapacity();
+        assertNull(cache.obtener(clave, g.getVersion()));
+        cache.guardar(clave, List.of(ruta(cap - 10), ruta(cap)), g, g.getVersion());
+        assertNotNull(cache.obtener(clave, g.getVersion()));
+
+        //El residual sigue por encima de la candidata más chica, pero la otra ya no tiene cap libre
+        book.reserve(vuelo, 1, 1);
+        assertNull(cache.obtener(clave, g.getVersion()));
+        assertEquals(1, cache.getInvalidaciones());
+    }
+
+    @Test
+    void reservaDuranteLaBusquedaNoSeGuarda() {
+        int cap = vuelo.getCapacity();
+        assertNull(cache.obtener(clave, g.getVersion()));
+        List<CandidateRoute> rutas = List.of(ruta(cap)); //buscadas con el vuelo vacío
+        book.reserve(vuelo, 5, 2);                        //otro pedido reserva antes de guardar
+        cache.guardar(clave, rutas, g, g.getVersion());
+        assertNull(cache.obtener(clave, g.getVersion()));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void reservaQueNoBajaDelUmbralMantieneLaEntrada() {
+        int cap = vuelo.getCapacity();
+        assertNull(cache.obtener(clave, g.getVersion()));
+        cache.guardar(clave, List.of(ruta(cap - 10)), g, g.getVersion());
+        book.reserve(vuelo, 10, 2);
+        assertNotNull(cache.obtener(clave, g.getVersion()));
+        assertEquals(0, cache.getInvalidaciones());
+    }
+}
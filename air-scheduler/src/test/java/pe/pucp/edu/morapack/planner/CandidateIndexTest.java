@@ -0,0 +1,153 @@
+package pe.pucp.edu.morapack.planner;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//CandidateIndex.reparar: minResidual al día después de reservar (en candidatas nuevas) y replanificación
+//solo de lo necesario
+class CandidateIndexTest {
+    private static final List<String> ORIGENES = List.of("SPIM", "EBCI", "UBBB");
+
+    private static AeropuertosMap aeropuertos;
+    private static VuelosMap vuelos;
+    private static List<Pedido> pedidos;
+
+    @BeforeAll
+    static void cargar() {
+        aeropuertos = new AeropuertosMap();
+        aeropuertos.leerDatos(ArchivoUtils.getScannerFromResource("c.1inf54.25.2.Aeropuerto.husos.v1.20250818__estudiantes.txt"));
+        vuelos = new VuelosMap(aeropuertos);
+        vuelos.leerDatos(ArchivoUtils.getScannerFromResource("c.1inf54.25.2.planes_vuelo.v4.20250818.txt"));
+        CargarPedidos cp = new CargarPedidos();
+        cp.leerDatos(ArchivoUtils.getScannerFromResource("pedidos.txt"));
+        pedidos = new ArrayList<>(cp.getColaPedidos()).subList(0, 30);
+    }
+
+    private TEGraph g;
+    private CapacityBook book;
+    private RoutePlanner planner;
+    private Map<Integer, Pedido> pedidosMap;
+    private Map<Integer, List<CandidateRoute>> candidatas;
+
+    private void armar() {
+        g = new TEGraph(aeropuertos, vuelos, 3);
+        book = new CapacityBook(new WarehouseBook(g));
+        planner = new RoutePlanner(g, aeropuertos, new SLAService(), book);
+        pedidosMap = new HashMap<>();
+        candidatas = new HashMap<>();
+        for (Pedido p : pedidos) {
+            pedidosMap.put(p.getIdPedido(), p);
+            candidatas.put(p.getIdPedido(), new ArrayList<>(planner.generarCandidatasMultiOrigen(p, ORIGENES, 3)));
+        }
+    }
+
+    //Primer vuelo de la primera candidata de cada pedido que tiene alguna
+    private Map<Integer, TEGraph.Arc> primerVuelo() {
+        Map<Integer, TEGraph.Arc> out = new TreeMap<>();
+        for (Map.Entry<Integer, List<CandidateRoute>> e : candidatas.entrySet()) {
+            if (e.getValue().isEmpty()) continue;
+            for (String id : e.getValue().get(0).arcIds) {
+                TEGraph.Arc a = g.arcsById.get(id);
+                if (a.getArcType() == ArcType.VUELO) {
+                    out.put(e.getKey(), a);
+                    break;
+                }
+            }
+        }
+        return out;
+    }
+
+    @Test
+    void sinPlanificadorSoloActualizaMinResidual() {
+        armar();
+        CandidateIndex indice = CandidateIndex.abrir(g, book, candidatas);
+        TEGraph.Arc arco = primerVuelo().values().iterator().next();
+        List<CandidateRoute> antes = indice.candidatasDe(arco);
+        int residualAntes = antes.get(0).minResidual;
+        book.reserve(arco, 1);
+        book.reserve(arco, 2);
+
+        CandidateIndex.Reparacion rep = indice.reparar(null, pedidosMap, ORIGENES, 3);
+
+        assertEquals(1, rep.arcos);
+        assertEquals(indice.candidatasDe(arco).size(), rep.revisadas);
+        assertEquals(0, rep.replanificados);
+        for (List<CandidateRoute> l : candidatas.values()) {
+            for (CandidateRoute c : l) assertEquals(book.residualPath(c.arcIds, g), c.minResidual);
+        }
+        assertEquals(residualAntes, antes.get(0).minResidual, "la candidata vieja no cambia, se reemplaza");
+        for (CandidateRoute c : indice.candidatasDe(arco)) {
+            assertTrue(candidatas.get(c.pedidoId).stream().anyMatch(x -> x == c), "el índice apunta a las candidatas nuevas");
+        }
+        assertEquals(0, indice.reparar(null, pedidosMap, ORIGENES, 3).arcos); //ya no quedan arcos sucios
+        indice.close();
+    }
+
+    @Test
+    void replanificaSoloLosPedidosQueYaNoEntranYNoEstanConfirmados() {
+        armar();
+        CandidateIndex indice = CandidateIndex.abrir(g, book, candidatas);
+        Iterator<Map.Entry<Integer, TEGraph.Arc>> it = primerVuelo().entrySet().iterator();
+        Map.Entry<Integer, TEGraph.Arc> libre = it.next();
+        Map.Entry<Integer, TEGraph.Arc> confirmado = it.next();
+        while (confirmado.getValue() == libre.getValue()) confirmado = it.next();
+
+        //Se llenan los dos vuelos: las candidatas que pasan por ellos ya no alcanzan para nadie
+        book.reserve(libre.getValue(), book.residual(libre.getValue()));
+        book.reserve(confirmado.getValue(), book.residual(confirmado.getValue()));
+        indice.confirmar(confirmado.getKey());
+        List<CandidateRoute> antesLibre = candidatas.get(libre.getKey());
+        List<CandidateRoute> antesConfirmado = candidatas.get(confirmado.getKey());
+
+        CandidateIndex.Reparacion rep = indice.reparar(planner, pedidosMap, ORIGENES, 3);
+
+        assertTrue(rep.replanificados >= 1);
+        assertNotSame(antesLibre, candidatas.get(libre.getKey()));
+        List<CandidateRoute> ahoraConfirmado = candidatas.get(confirmado.getKey());
+        assertEquals(antesConfirmado.size(), ahoraConfirmado.size());
+        for (int i = 0; i < antesConfirmado.size(); i++) {
+            assertEquals(antesConfirmado.get(i).arcIds, ahoraConfirmado.get(i).arcIds, "el confirmado no se replanifica");
+        }
+        assertEquals(0, ahoraConfirmado.get(0).minResidual);
+        for (CandidateRoute c : candidatas.get(libre.getKey())) {
+            assertFalse(c.arcIds.contains(libre.getValue().getArcId()), "la replanificación evita el vuelo lleno");
+        }
+        //Las candidatas nuevas quedan indexadas: un cambio en sus arcos se vuelve a ver
+        for (CandidateRoute c : candidatas.get(libre.getKey())) {
+            for (String id : c.arcIds) assertTrue(indice.candidatasDe(g.arcsById.get(id)).contains(c));
+        }
+        indice.close();
+    }
+
+    @Test
+    void siElGrafoAvanzaSeRearmaElIndiceConLosOrdinalesNuevos() {
+        armar();
+        CandidateIndex indice = CandidateIndex.abrir(g, book, candidatas);
+        int total = 0;
+        for (List<CandidateRoute> l : candidatas.values()) total += l.size();
+
+        g.advanceTo(SimulationConfig.SIM_DATE.plusDays(1).atTime(6, 0), book); //reutiliza ordinales de arcos eliminados
+        CandidateIndex.Reparacion rep = indice.reparar(null, pedidosMap, ORIGENES, 3);
+
+        assertEquals(total, rep.revisadas);
+        for (List<CandidateRoute> l : candidatas.values()) {
+            for (CandidateRoute c : l) {
+                for (String id : c.arcIds) {
+                    TEGraph.Arc a = g.arcsById.get(id);
+                    if (a == null) continue; //quedó fuera del horizonte
+                    assertTrue(indice.candidatasDe(a).contains(c));
+                }
+            }
+        }
+        for (int i = 0; i < g.arcIndexBound(); i++) {
+            TEGraph.Arc a = g.arcByIndex(i);
+            if (a == null) continue;
+            for (CandidateRoute c : indice.candidatasDe(a)) assertTrue(c.arcIds.contains(a.getArcId()), "sin entradas de otro arco con el mismo ordinal");
+        }
+        indice.close();
+    }
+}
@@ -0,0 +1,80 @@
+package pe.pucp.edu.morapack.planner;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//CapacityJournal: recuperación al reabrir, compactación en el flusher y errores de E/S que no cortan las reservas
+class CapacityJournalTest {
+    private static AeropuertosMap aeropuertos;
+    private static VuelosMap vuelos;
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void cargar() {
+        aeropuertos = new AeropuertosMap();
+        aeropuertos.leerDatos(ArchivoUtils.getScannerFromResource("c.1inf54.25.2.Aeropuerto.husos.v1.20250818__estudiantes.txt"));
+        vuelos = new VuelosMap(aeropuertos);
+        vuelos.leerDatos(ArchivoUtils.getScannerFromResource("c.1inf54.25.2.planes_vuelo.v4.20250818.txt"));
+    }
+
+    private static List<TEGraph.Arc> vuelos(TEGraph g, int n) {
+        List<TEGraph.Arc> out = new ArrayList<>();
+        for (int i = 0; i < g.arcIndexBound() && out.size() < n; i++) {
+            TEGraph.Arc a = g.arcByIndex(i);
+            if (a != null && a.getArcType() == ArcType.VUELO) out.add(a);
+        }
+        return out;
+    }
+
+    @Test
+    void alReabrirSeRecuperaElUsoConCompactacionDePorMedio() throws IOException {
+        TEGraph g = new TEGraph(aeropuertos, vuelos, 1);
+        CapacityBook book = new CapacityBook();
+        List<TEGraph.Arc> arcos = vuelos(g, 30);
+        try (CapacityJournal journal = CapacityJournal.abrir(dir, g, book, 5, 10)) {
+            for (int i = 0; i < arcos.size(); i++) book.reserve(arcos.get(i), i + 1, i);
+            journal.sync();
+            journal.compactar();
+            book.release(arcos.get(0), 1, 0);
+            book.reserve(arcos.get(1), 3, 1);
+        }
+
+        TEGraph g2 = new TEGraph(aeropuertos, vuelos, 1);
+        CapacityBook book2 = new CapacityBook();
+        try (CapacityJournal journal2 = CapacityJournal.abrir(dir, g2, book2)) {
+            assertTrue(Files.exists(dir.resolve("capacidad.snapshot")));
+            for (TEGraph.Arc a : arcos) assertEquals(book.used(a), book2.used(g2.arcsById.get(a.getArcId())), a.getArcId());
+            assertNull(journal2.getError());
+        }
+    }
+
+    @Test
+    void unErrorDeEscrituraNoSalePorLaReservaYLoInformaSync() throws Exception {
+        TEGraph g = new TEGraph(aeropuertos, vuelos, 1);
+        CapacityBook book = new CapacityBook();
+        List<TEGraph.Arc> arcos = vuelos(g, 20);
+        Files.createDirectories(dir);
+        Files.createDirectory(dir.resolve("capacidad.snapshot.tmp")); //la compactación no puede escribir su snapshot
+        CapacityJournal journal = CapacityJournal.abrir(dir, g, book, 5, 10);
+
+        for (TEGraph.Arc a : arcos) book.reserve(a, 1); //pide la compactación; no falla aquí
+        for (int i = 0; i < 500 && journal.getError() == null; i++) Thread.sleep(10);
+        assertNotNull(journal.getError(), "la compactación corre en el flusher y deja el error guardado");
+
+        book.reserve(arcos.get(0), 1); //el book sigue reservando
+        assertEquals(2, book.used(arcos.get(0)));
+        assertThrows(IOException.class, journal::sync);
+        assertThrows(IOException.class, journal::close);
+    }
+}
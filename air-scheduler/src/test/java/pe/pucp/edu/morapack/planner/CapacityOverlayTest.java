@@ -0,0 +1,99 @@
+package pe.pucp.edu.morapack.planner;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//CapacityOverlay: reservas de prueba sobre un libro base que no cambia, y búsquedas que las ven
+class CapacityOverlayTest {
+    private static final List<String> ORIGENES = List.of("SPIM", "EBCI", "UBBB");
+
+    private static AeropuertosMap aeropuertos;
+    private static VuelosMap vuelos;
+    private static List<Pedido> pedidos;
+
+    @BeforeAll
+    static void cargar() {
+        aeropuertos = new AeropuertosMap();
+        aeropuertos.leerDatos(ArchivoUtils.getScannerFromResource("c.1inf54.25.2.Aeropuerto.husos.v1.20250818__estudiantes.txt"));
+        vuelos = new VuelosMap(aeropuertos);
+        vuelos.leerDatos(ArchivoUtils.getScannerFromResource("c.1inf54.25.2.planes_vuelo.v4.20250818.txt"));
+        CargarPedidos cp = new CargarPedidos();
+        cp.leerDatos(ArchivoUtils.getScannerFromResource("pedidos.txt"));
+        pedidos = new ArrayList<>(cp.getColaPedidos());
+    }
+
+    private static TEGraph.Arc primerVuelo(TEGraph g, CandidateRoute c) {
+        for (String id : c.arcIds) {
+            TEGraph.Arc a = g.arcsById.get(id);
+            if (a != null && a.getArcType() == ArcType.VUELO) return a;
+        }
+        return null;
+    }
+
+    @Test
+    void lasReservasQuedanEnElOverlayYNoEnLaBase() {
+        TEGraph g = new TEGraph(aeropuertos, vuelos, 1);
+        CapacityBook base = new CapacityBook(new WarehouseBook(g));
+        TEGraph.Arc vuelo = null, espera = null;
+        for (TEGraph.Arc a : g.arcsById.values()) {
+            if (vuelo == null && a.getArcType() == ArcType.VUELO) vuelo = a;
+            if (espera == null && a.getArcType() == ArcType.ESPERA) espera = a;
+        }
+        base.reserve(vuelo, 5);
+        base.reserve(espera, 2);
+
+        CapacityOverlay overlay = base.overlay();
+        assertTrue(overlay.isEmpty());
+        overlay.reserve(vuelo, 3);
+        overlay.reserve(espera, 4);
+        assertEquals(8, overlay.used(vuelo));
+        assertEquals(6, overlay.used(espera));
+        assertEquals(5, base.used(vuelo));
+        assertEquals(2, base.used(espera));
+
+        CapacityOverlay copia = overlay.snapshot();
+        copia.release(vuelo, 3);
+        assertEquals(5, copia.used(vuelo));
+        assertEquals(8, overlay.used(vuelo));
+
+        int[] modificados = overlay.arcosModificados();
+        java.util.Arrays.sort(modificados);
+        int[] esperados = {vuelo.getIndex(), espera.getIndex()};
+        java.util.Arrays.sort(esperados);
+        assertArrayEquals(esperados, modificados);
+    }
+
+    @Test
+    void unPlanificadorSobreElOverlayEvitaLoApartado() {
+        TEGraph g = new TEGraph(aeropuertos, vuelos, 3);
+        CapacityBook base = new CapacityBook(new WarehouseBook(g));
+        RoutePlanner planner = new RoutePlanner(g, aeropuertos, new SLAService(), base);
+
+        Pedido pedido = null;
+        TEGraph.Arc lleno = null;
+        for (Pedido p : pedidos) {
+            List<CandidateRoute> cand = planner.generarCandidatasMultiOrigen(p, ORIGENES, 3);
+            if (cand.isEmpty() || (lleno = primerVuelo(g, cand.get(0))) == null) continue;
+            pedido = p;
+            break;
+        }
+        assertNotNull(pedido);
+
+        CapacityOverlay overlay = base.overlay();
+        overlay.reserve(lleno, overlay.residual(lleno));
+        RoutePlanner sobreOverlay = planner.sobreLibro(overlay);
+
+        for (CandidateRoute c : sobreOverlay.generarCandidatasMultiOrigen(pedido, ORIGENES, 3)) {
+            assertFalse(c.arcIds.contains(lleno.getArcId()), "el vuelo lleno en el overlay no se usa");
+        }
+        assertEquals(0, base.used(lleno));
+        String id = lleno.getArcId();
+        assertTrue(planner.generarCandidatasMultiOrigen(pedido, ORIGENES, 3).stream()
+                .anyMatch(c -> c.arcIds.contains(id)), "el planificador original sigue viendo la base");
+    }
+}
@@ -0,0 +1,82 @@
+package pe.pucp.edu.morapack.planner;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Frente no dominado por (nodo, hops) de LabelPool.agregarSiNoDominada
+class LabelPoolTest {
+    private LabelPool pool;
+
+    @BeforeEach
+    void preparar() {
+        pool = new LabelPool();
+        pool.prepararNodos(4, 3, 2);
+    }
+
+    private boolean agregar(int nodo, int hops, int residual) {
+        return pool.agregarSiNoDominada(nodo, pool.nueva(0, 0, 0, hops, residual));
+    }
+
+    @Test
+    void menosEscalasConIgualOMasResidualDomina() {
+        assertTrue(agregar(0, 1, 10));
+        assertFalse(agregar(0, 2, 10));
+        assertFalse(agregar(0, 3, 7));
+        assertTrue(agregar(0, 2, 11));
+        assertFalse(agregar(0, 1, 9));
+    }
+
+    @Test
+    void dominadaConsultaSinRegistrar() {
+        pool.prepararNodos(4, 3, 0); //como en la búsqueda TD: los empates también quedan dominados
+        assertFalse(pool.dominada(1, 2, 5));
+        assertTrue(agregar(1, 1, 5));
+        assertTrue(pool.dominada(1, 1, 5));
+        assertTrue(pool.dominada(1, 3, 4));
+        assertFalse(pool.dominada(1, 1, 6));
+        assertFalse(pool.dominada(1, 0, 1));
+        assertTrue(agregar(1, 0, 1)); //la consulta no dejó nada registrado
+    }
+
+    @Test
+    void losEmpatesSeAceptanHastaElLimitePorCasillero() {
+        assertTrue(agregar(0, 1, 10));
+        assertTrue(agregar(0, 1, 10));
+        assertFalse(agregar(0, 1, 10)); //porCasillero = 2
+        assertTrue(agregar(0, 1, 12)); //mejor residual: reemplaza a los empates
+        assertTrue(agregar(0, 1, 12));
+    }
+
+    @Test
+    void unaEtiquetaNuevaVaciaLosCasillerosQueDomina() {
+        assertTrue(agregar(0, 2, 8));
+        assertTrue(agregar(0, 3, 9));
+        assertTrue(agregar(0, 1, 8)); //vacía hops 2 (8 <= 8), no hops 3
+        assertFalse(agregar(0, 2, 8));
+        assertFalse(agregar(0, 3, 8));
+        assertTrue(agregar(0, 0, 20)); //vacía todo lo demás
+        assertFalse(agregar(0, 3, 9));
+        assertTrue(agregar(0, 3, 21));
+    }
+
+    @Test
+    void losNodosSonIndependientes() {
+        assertTrue(agregar(0, 0, 50));
+        assertTrue(agregar(1, 3, 1));
+        assertTrue(agregar(3, 2, 5));
+        assertFalse(agregar(0, 3, 1));
+    }
+
+    @Test
+    void resetLimpiaSoloLoTocadoYDejaElFrenteVacio() {
+        assertTrue(agregar(0, 0, 50));
+        assertTrue(agregar(2, 1, 5));
+        pool.reset();
+        pool.prepararNodos(4, 3, 2);
+        assertEquals(0, pool.size());
+        assertTrue(agregar(0, 3, 1));
+        assertTrue(agregar(2, 2, 4));
+    }
+}
@@ -0,0 +1,141 @@
+package pe.pucp.edu.morapack.planner;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//PlanStore contra un PostgreSQL embebido (zonky), conectado por PlanStore.Conexiones.
+//Los cambios se hacen antes de iniciar(), así el primer recorrido del escritor ve todas las claves juntas.
+class PlanStoreTest {
+    private static EmbeddedPostgres pg;
+    private static AeropuertosMap aeropuertos;
+    private static VuelosMap vuelos;
+
+    private TEGraph g;
+    private CapacityBook book;
+
+    @BeforeAll
+    static void arrancar() throws Exception {
+        pg = EmbeddedPostgres.start();
+        aeropuertos = new AeropuertosMap();
+        aeropuertos.leerDatos(ArchivoUtils.getScannerFromResource("c.1inf54.25.2.Aeropuerto.husos.v1.20250818__estudiantes.txt"));
+        vuelos = new VuelosMap(aeropuertos);
+        vuelos.leerDatos(ArchivoUtils.getScannerFromResource("c.1inf54.25.2.planes_vuelo.v4.20250818.txt"));
+    }
+
+    @AfterAll
+    static void parar() throws Exception {
+        if (pg != null) pg.close();
+    }
+
+    @BeforeEach
+    void limpiar() throws SQLException {
+        try (Connection c = conexion(); Statement st = c.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS plan_asignacion, capacidad_arco");
+        }
+        g = new TEGraph(aeropuertos, vuelos, 1);
+        book = new CapacityBook();
+    }
+
+    private static Connection conexion() throws SQLException {
+        return pg.getPostgresDatabase().getConnection();
+    }
+
+    private List<TEGraph.Arc> vuelos(int n) {
+        List<TEGraph.Arc> out = new ArrayList<>();
+        for (int i = 0; i < g.arcIndexBound() && out.size() < n; i++) {
+            TEGraph.Arc a = g.arcByIndex(i);
+            if (a != null && a.getArcType() == ArcType.VUELO) out.add(a);
+        }
+        return out;
+    }
+
+    private static Map<String, Integer> usoGuardado() throws SQLException {
+        Map<String, Integer> out = new HashMap<>();
+        try (Connection c = conexion(); Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT origen, salida, destino, llegada, usado FROM capacidad_arco")) {
+            while (rs.next()) {
+                out.put(rs.getString(1) + "@" + rs.getTimestamp(2).toLocalDateTime() + "→"
+                        + rs.getString(3) + "@" + rs.getTimestamp(4).toLocalDateTime(), rs.getInt(5));
+            }
+        }
+        return out;
+    }
+
+    @Test
+    void juntaLosCambiosDeCadaClaveYEscribeEnLotes() throws Exception {
+        List<TEGraph.Arc> arcos = vuelos(10);
+        try (PlanStore store = new PlanStore(PlanStoreTest::conexion, 1024, 3, 10)) {
+            store.conectar(book);
+            for (int vuelta = 0; vuelta < 5; vuelta++) {
+                for (TEGraph.Arc a : arcos) book.reserve(a, 2);
+            }
+            book.release(arcos.get(0), 100); //se recorta en cero y tiene que quedar 0, no negativo
+            CandidateRoute ruta = new CandidateRoute(7, List.of(arcos.get(1).getArcId()), 0, 60, 0, 1, 0);
+            store.registrarAsignacion(7, 5, ruta);
+            store.registrarAsignacion(7, 6, ruta);
+
+            store.iniciar();
+            assertTrue(store.flush(10_000));
+
+            assertEquals(53, store.getCambios());
+            assertEquals(11, store.getFilasEscritas()); //una fila por arco y una por pedido
+            assertTrue(store.getLotes() >= 4, "lotes de a lo sumo 3 claves: " + store.getLotes());
+            assertEquals(0, store.getDesbordes());
+
+            Map<String, Integer> guardado = usoGuardado();
+            assertEquals(10, guardado.size());
+            for (TEGraph.Arc a : arcos) assertEquals(book.used(a), guardado.get(a.getArcId()));
+            assertEquals(0, guardado.get(arcos.get(0).getArcId()));
+
+            Map<Integer, List<String>> asignaciones = store.cargarAsignaciones();
+            assertEquals(List.of(arcos.get(1).getArcId()), asignaciones.get(7));
+        }
+    }
+
+    @Test
+    void siLaColaSeDesbordaRecorreTodosLosPendientes() throws Exception {
+        List<TEGraph.Arc> arcos = vuelos(20);
+        try (PlanStore store = new PlanStore(PlanStoreTest::conexion, 2, 500, 10)) {
+            store.conectar(book);
+            for (int i = 0; i < arcos.size(); i++) book.reserve(arcos.get(i), i + 1);
+
+            store.iniciar();
+            assertTrue(store.flush(10_000));
+
+            assertTrue(store.getDesbordes() > 0);
+            Map<String, Integer> guardado = usoGuardado();
+            assertEquals(20, guardado.size());
+            for (TEGraph.Arc a : arcos) assertEquals(book.used(a), guardado.get(a.getArcId()));
+        }
+    }
+
+    @Test
+    void cargarDevuelveLaOcupacionAUnLibroNuevo() throws Exception {
+        List<TEGraph.Arc> arcos = vuelos(15);
+        try (PlanStore store = new PlanStore(PlanStoreTest::conexion, 1024, 4, 10)) {
+            store.conectar(book);
+            store.iniciar();
+            for (int i = 0; i < arcos.size(); i++) book.reserve(arcos.get(i), 3 * i);
+            book.release(arcos.get(2), 1);
+            assertTrue(store.flush(10_000));
+        }
+
+        TEGraph g2 = new TEGraph(aeropuertos, vuelos, 1);
+        CapacityBook book2 = new CapacityBook();
+        try (PlanStore store = new PlanStore(PlanStoreTest::conexion, 1024, 4, 10)) {
+            assertEquals(14, store.cargar(g2, book2)); //el arco con 0 no se carga
+        }
+        for (TEGraph.Arc a : arcos) assertEquals(book.used(a), book2.used(g2.arcsById.get(a.getArcId())));
+    }
+}
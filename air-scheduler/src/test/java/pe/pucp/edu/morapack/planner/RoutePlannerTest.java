@@ -0,0 +1,70 @@
+package pe.pucp.edu.morapack.planner;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//RoutePlanner.mezclar: la mezcla k-way del multi-origen
+class RoutePlannerTest {
+
+    private static CandidateRoute ruta(int arr, int res, int hops, String... arcos) {
+        return new CandidateRoute(1, List.of(arcos), 0, arr, 0, hops, res);
+    }
+
+    @Test
+    void losEmpatesSeResuelvenPorOrigenYLuegoPorPosicion() {
+        CandidateRoute a1 = ruta(100, 5, 1, "a1"), a2 = ruta(100, 5, 1, "a2");
+        CandidateRoute b1 = ruta(100, 5, 1, "b1");
+        CandidateRoute c1 = ruta(90, 5, 1, "c1"), c2 = ruta(100, 5, 1, "c2");
+
+        List<CandidateRoute> out = RoutePlanner.mezclar(List.of(List.of(a1, a2), List.of(b1), List.of(c1, c2)), 10);
+
+        assertEquals(List.of(c1, a1, a2, b1, c2), out);
+    }
+
+    @Test
+    void unMismoCaminoSeTomaUnaSolaVezYSeRespetaK() {
+        CandidateRoute x = ruta(100, 5, 1, "v1", "v2");
+        CandidateRoute xOtroOrigen = ruta(100, 5, 1, "v1", "v2");
+        CandidateRoute y = ruta(120, 5, 1, "v3");
+        CandidateRoute z = ruta(130, 5, 1, "v4");
+
+        assertEquals(List.of(x, y, z), RoutePlanner.mezclar(List.of(List.of(x, z), List.of(xOtroOrigen, y)), 10));
+        assertEquals(List.of(x, y), RoutePlanner.mezclar(List.of(List.of(x, z), List.of(xOtroOrigen, y)), 2));
+        assertTrue(RoutePlanner.mezclar(List.of(List.of(), List.of()), 3).isEmpty());
+    }
+
+    //Da lo mismo que ordenar en forma estable la concatenación de las listas (en orden de origen), así que
+    //no depende de en qué orden terminaron las búsquedas por origen (serie o paralelo)
+    @Test
+    void equivaleAOrdenarEstableLaConcatenacion() {
+        Random r = new Random(17);
+        for (int caso = 0; caso < 500; caso++) {
+            List<List<CandidateRoute>> listas = new ArrayList<>();
+            int n = 1 + r.nextInt(4);
+            for (int i = 0; i < n; i++) {
+                List<CandidateRoute> l = new ArrayList<>();
+                int m = r.nextInt(6);
+                for (int j = 0; j < m; j++) {
+                    l.add(ruta(r.nextInt(4) * 60, r.nextInt(3), 1 + r.nextInt(3), "v" + r.nextInt(8), "v" + r.nextInt(8)));
+                }
+                l.sort(RoutePlanner.ORDEN);
+                listas.add(l);
+            }
+            int k = 1 + r.nextInt(12);
+
+            List<CandidateRoute> todas = new ArrayList<>();
+            listas.forEach(todas::addAll);
+            todas.sort(RoutePlanner.ORDEN); //List.sort es estable
+            List<CandidateRoute> esperado = new ArrayList<>();
+            Set<List<String>> vistos = new HashSet<>();
+            for (CandidateRoute c : todas) {
+                if (esperado.size() < k && vistos.add(c.arcIds)) esperado.add(c);
+            }
+
+            assertEquals(esperado, RoutePlanner.mezclar(listas, k), "caso " + caso);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package pe.pucp.edu.morapack.planner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+//Compara RoutePlanner (label-setting) con ConnectionScanPlanner (CSA) sobre los mismos pedidos:
+//tiempo por motor y cuántas listas de candidatas coinciden (exactas y con la misma mejor ETA).
+//No es un test de JUnit: se corre a mano con las clases de test en el classpath.
+//Uso: java ... RouteSearchBenchmark [k] [repeticiones]
+public class RouteSearchBenchmark {
+    public static void main(String[] args) {
+        int k = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int repeticiones = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        NetworkSnapshot red = NetworkSnapshot.cargarOConstruir(
+                NetworkSnapshot.archivoPorDefecto(),
+                "c.1inf54.25.2.Aeropuerto.husos.v1.20250818__estudiantes.txt",
+                "c.1inf54.25.2.planes_vuelo.v4.20250818.txt");
+        if (red == null) return;
+
+        CargarPedidos pedidos = new CargarPedidos();
+        try (Scanner sc = ArchivoUtils.getScannerFromResource("pedidos.txt")) {
+            if (sc == null) return;
+            pedidos.leerDatos(sc);
+        }
+        List<Pedido> lista = new ArrayList<>(pedidos.getColaPedidos());
+
+        TEGraph G = new TEGraph(red.getAeropuertos(), red.getVuelos(), 3, Boolean.getBoolean("morapack.grafoParalelo"));
+        SLAService sla = new SLAService();
+        CapacityBook capBook = new CapacityBook(new WarehouseBook(G));
+        var ORIGENES = List.of("SPIM", "EBCI", "UBBB");
+
+        RoutePlanner labels = new RoutePlanner(G, red.getAeropuertos(), sla, capBook);
+        ConnectionScanPlanner csa = new ConnectionScanPlanner(G, red.getAeropuertos(), sla, capBook);
+
+        List<List<CandidateRoute>> resLabels = null, resCsa = null;
+        for (int r = 0; r < repeticiones; r++) { //la primera vuelta calienta el JIT y arma los índices
+            long t0 = System.nanoTime();
+            resLabels = correr(labels, lista, ORIGENES, k);
+            long t1 = System.nanoTime();
+            resCsa = correr(csa, lista, ORIGENES, k);
+            long t2 = System.nanoTime();
+            System.out.printf("Vuelta %d: label-setting %.1f ms (%.0f pedidos/s) | CSA %.1f ms (%.0f pedidos/s)%n",
+                    r + 1, (t1 - t0) / 1e6, lista.size() / ((t1 - t0) / 1e9),
+                    (t2 - t1) / 1e6, lista.size() / ((t2 - t1) / 1e9));
+        }
+
+        int iguales = 0, mismaEta = 0, soloLabels = 0, soloCsa = 0;
+        for (int i = 0; i < lista.size(); i++) {
+            List<CandidateRoute> a = resLabels.get(i), b = resCsa.get(i);
+            if (firma(a).equals(firma(b))) iguales++;
+            if (a.isEmpty() != b.isEmpty()) {
+                if (a.isEmpty()) soloCsa++;
+                else soloLabels++;
+            } else if (a.isEmpty() || a.get(0).arrMin == b.get(0).arrMin) {
+                mismaEta++;
+            }
+        }
+        System.out.printf("Pedidos: %d | listas idénticas: %d | misma mejor ETA: %d | solo label-setting: %d | solo CSA: %d%n",
+                lista.size(), iguales, mismaEta, soloLabels, soloCsa);
+    }
+
+    private static List<List<CandidateRoute>> correr(RouteSearch motor, List<Pedido> pedidos, List<String> origenes, int k) {
+        List<List<CandidateRoute>> res = new ArrayList<>(pedidos.size());
+        for (Pedido p : pedidos) res.add(motor.generarCandidatasMultiOrigen(p, origenes, k));
+        return res;
+    }
+
+    private static String firma(List<CandidateRoute> l) {
+        StringBuilder sb = new StringBuilder();
+        for (CandidateRoute c : l) sb.append(c.arcIds).append('/').append(c.minResidual).append(';');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,92 @@
+package pe.pucp.edu.morapack.planner;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Modo TD de punta a punta: lo que se confirma con arcos del TEGraph en el TDCapacityBook lo ve la
+//siguiente búsqueda sobre el TDGraph
+class TDCapacityBookTest {
+    private static final List<String> ORIGENES = List.of("SPIM", "EBCI", "UBBB");
+
+    private static AeropuertosMap aeropuertos;
+    private static VuelosMap vuelos;
+    private static List<Pedido> pedidos;
+
+    @BeforeAll
+    static void cargar() {
+        aeropuertos = new AeropuertosMap();
+        aeropuertos.leerDatos(ArchivoUtils.getScannerFromResource("c.1inf54.25.2.Aeropuerto.husos.v1.20250818__estudiantes.txt"));
+        vuelos = new VuelosMap(aeropuertos);
+        vuelos.leerDatos(ArchivoUtils.getScannerFromResource("c.1inf54.25.2.planes_vuelo.v4.20250818.txt"));
+        CargarPedidos cp = new CargarPedidos();
+        cp.leerDatos(ArchivoUtils.getScannerFromResource("pedidos.txt"));
+        pedidos = new ArrayList<>(cp.getColaPedidos());
+    }
+
+    private TEGraph g;
+    private TDGraph td;
+    private TDCapacityBook book;
+    private RoutePlanner planner;
+
+    @BeforeEach
+    void armar() {
+        g = new TEGraph(aeropuertos, vuelos, 3);
+        td = new TDGraph(aeropuertos, vuelos);
+        book = new TDCapacityBook(td, new WarehouseBook(g));
+        planner = new RoutePlanner(td, aeropuertos, new SLAService());
+    }
+
+    //Primer pedido con alguna candidata cuyos vuelos estén todos en el TEGraph
+    private CandidateRoute primeraCandidata(Pedido[] pedido) {
+        for (Pedido p : pedidos) {
+            for (CandidateRoute c : planner.generarCandidatasMultiOrigen(p, ORIGENES, 3)) {
+                if (c.arcIds.isEmpty() || !c.arcIds.stream().allMatch(g.arcsById::containsKey)) continue;
+                pedido[0] = p;
+                return c;
+            }
+        }
+        return fail("ningún pedido tiene candidatas dentro del horizonte del TEGraph");
+    }
+
+    @Test
+    void lasReservasDeVueloLleganAlTDGraph() {
+        Pedido[] p = new Pedido[1];
+        CandidateRoute c = primeraCandidata(p);
+        TEGraph.Arc vuelo = g.arcsById.get(c.arcIds.get(0));
+        int dia = TDGraph.day(vuelo.getFrom().getMinuto());
+
+        book.reservePath(c.arcIds, g, 7, p[0].getIdPedido());
+        assertEquals(7, td.used(vuelo.getVuelo(), dia));
+        assertEquals(td.residual(vuelo.getVuelo(), dia), book.residual(vuelo));
+
+        book.release(vuelo, 7, p[0].getIdPedido());
+        assertEquals(0, td.used(vuelo.getVuelo(), dia));
+        assertEquals(0, td.reservedInstances());
+    }
+
+    @Test
+    void laSiguienteBusquedaNoUsaUnVueloLleno() {
+        Pedido[] p = new Pedido[1];
+        CandidateRoute c = primeraCandidata(p);
+        TEGraph.Arc vuelo = null;
+        for (String id : c.arcIds) {
+            TEGraph.Arc a = g.arcsById.get(id);
+            if (a.getArcType() == ArcType.VUELO) vuelo = a;
+        }
+        assertNotNull(vuelo);
+        assertTrue(book.tryReserve(vuelo, vuelo.getCapacity(), 1));
+        assertFalse(book.tryReserve(vuelo, 1, 2));
+
+        for (String origen : ORIGENES) {
+            for (CandidateRoute otra : planner.generarCandidatas(p[0], origen, 50)) {
+                assertFalse(otra.arcIds.contains(vuelo.getArcId()), "la búsqueda TD tomó un vuelo lleno");
+            }
+        }
+    }
+}
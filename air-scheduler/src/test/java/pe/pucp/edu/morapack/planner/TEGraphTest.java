@@ -0,0 +1,70 @@
+package pe.pucp.edu.morapack.planner;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Armado paralelo del TEGraph: mismo grafo que el serial (nodos, arcos, ordinales, listas out y eventos)
+class TEGraphTest {
+    private static AeropuertosMap aeropuertos;
+    private static VuelosMap vuelos;
+
+    @BeforeAll
+    static void cargar() {
+        aeropuertos = new AeropuertosMap();
+        aeropuertos.leerDatos(ArchivoUtils.getScannerFromResource("c.1inf54.25.2.Aeropuerto.husos.v1.20250818__estudiantes.txt"));
+        vuelos = new VuelosMap(aeropuertos);
+        vuelos.leerDatos(ArchivoUtils.getScannerFromResource("c.1inf54.25.2.planes_vuelo.v4.20250818.txt"));
+    }
+
+    private static void assertMismoGrafo(TEGraph s, TEGraph p) {
+        assertEquals(s.nodesById.keySet(), p.nodesById.keySet());
+        for (Map.Entry<String, TEGraph.Node> e : s.nodesById.entrySet()) {
+            assertEquals(e.getValue().getNodeType(), p.nodesById.get(e.getKey()).getNodeType(), e.getKey());
+        }
+        assertEquals(s.arcsById.keySet(), p.arcsById.keySet());
+
+        //Los libros de capacidad dependen de los ordinales: tienen que ser los mismos
+        assertEquals(s.arcIndexBound(), p.arcIndexBound());
+        for (int i = 0; i < s.arcIndexBound(); i++) {
+            TEGraph.Arc a = s.arcByIndex(i), b = p.arcByIndex(i);
+            assertEquals(a == null, b == null, "ordinal " + i);
+            if (a != null) assertEquals(a.getArcId(), b.getArcId(), "ordinal " + i);
+        }
+
+        //El DepartureIndex recorre out y eventsByAirport en orden de iteración
+        assertEquals(new ArrayList<>(s.eventsByAirport.keySet()), new ArrayList<>(p.eventsByAirport.keySet()));
+        assertEquals(s.eventsByAirport, p.eventsByAirport);
+        assertEquals(s.out.keySet(), p.out.keySet());
+        for (String n : s.out.keySet()) assertEquals(ids(s.out.get(n)), ids(p.out.get(n)), n);
+    }
+
+    private static List<String> ids(List<TEGraph.Arc> arcos) {
+        List<String> out = new ArrayList<>(arcos.size());
+        for (TEGraph.Arc a : arcos) out.add(a.getArcId());
+        return out;
+    }
+
+    @Test
+    void elArmadoParaleloEsIgualAlSerial() {
+        for (int dias : new int[]{1, 3}) {
+            assertMismoGrafo(new TEGraph(aeropuertos, vuelos, dias, false), new TEGraph(aeropuertos, vuelos, dias, true));
+        }
+    }
+
+    @Test
+    void despuesDeAvanzarSiguenIguales() {
+        TEGraph s = new TEGraph(aeropuertos, vuelos, 2, false);
+        TEGraph p = new TEGraph(aeropuertos, vuelos, 2, true);
+        java.time.LocalDateTime t = SimulationConfig.SIM_DATE.plusDays(1).atTime(6, 0);
+        s.advanceTo(t);
+        p.advanceTo(t);
+        assertEquals(s.getVersion(), p.getVersion());
+        assertMismoGrafo(s, p);
+    }
+}